@@ -0,0 +1,66 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * The calendar the benchmarks run against.  Today is fixed so that runs on different days build
+ * the same months, and the model is configured the way {@link CalendarPickerView} configures its
+ * own.
+ */
+final class Benchmarks {
+  static final TimeZone TIME_ZONE = TimeZone.getTimeZone("America/New_York");
+  /** How many months of cells the picker keeps. */
+  static final int MONTH_CACHE_SIZE = 12;
+
+  private Benchmarks() {
+    // No instances.
+  }
+
+  static Calendar today() {
+    Calendar today = Calendar.getInstance(TIME_ZONE, Locale.US);
+    today.clear();
+    today.set(2014, Calendar.JANUARY, 15);
+    return today;
+  }
+
+  /** Returns a model whose selectable days run from {@code today} for {@code years}. */
+  static CalendarModel newModel(Calendar today, int years) {
+    CalendarModel model = new CalendarModel(MONTH_CACHE_SIZE, null);
+    reset(model, today, years);
+    return model;
+  }
+
+  /** Starts {@code model} over, as {@link CalendarPickerView#init} does. */
+  static void reset(CalendarModel model, Calendar today, int years) {
+    int minDay = CalendarDays.fromCalendar(today);
+    int maxDay = addYears(minDay, years);
+    int monthCount = CalendarDays.epochMonth(maxDay - 1) - CalendarDays.epochMonth(minDay) + 1;
+    model.reset(today, TIME_ZONE, minDay, maxDay, monthCount);
+  }
+
+  static int addYears(int day, int years) {
+    return CalendarDays.of(CalendarDays.year(day) + years, CalendarDays.month(day),
+        CalendarDays.dayOfMonth(day));
+  }
+
+  /**
+   * Returns the selectable cell of {@code day}, building its month unless it's cached, the way
+   * the picker looks a date up before selecting or highlighting it.
+   */
+  static MonthCellDescriptor findCell(CalendarModel model, int day) {
+    MonthCellDescriptor cell =
+        CalendarModel.getCell(model.getMonthCells(CalendarDays.epochMonth(day)), day);
+    if (cell == null || !cell.isSelectable()) {
+      throw new IllegalStateException("Not selectable: " + day);
+    }
+    return cell;
+  }
+
+  /** Selects {@code day} the way {@link CalendarPickerView#selectDate} does. */
+  static boolean selectDay(CalendarModel model, int day) {
+    return model.selectDay(day, findCell(model, day));
+  }
+}
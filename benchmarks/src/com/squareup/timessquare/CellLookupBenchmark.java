@@ -0,0 +1,47 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looking up the cell of a date, as the picker does before selecting or highlighting it, in
+ * months that are cached and in months that have to be built again.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class CellLookupBenchmark {
+  private CalendarModel model;
+  private int minDay;
+  private int offset;
+
+  @Setup public void setUp() {
+    model = Benchmarks.newModel(Benchmarks.today(), 5);
+    minDay = model.getMinDay();
+  }
+
+  /** Days of the first few months, which stay cached. */
+  @Benchmark public Object cachedMonth() {
+    offset = (offset + 1) % (Benchmarks.MONTH_CACHE_SIZE / 2 * 28);
+    return Benchmarks.findCell(model, minDay + offset);
+  }
+
+  /** A day in each of twice as many months as are cached, so that each lookup builds a month. */
+  @Benchmark public Object evictedMonth() {
+    offset = (offset + 1) % (Benchmarks.MONTH_CACHE_SIZE * 2);
+    return Benchmarks.findCell(model, minDay + offset * 31);
+  }
+}
@@ -0,0 +1,47 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Highlighting 10, 100 and 1,000 consecutive days at once, as {@code highlightDates} does. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class HighlightBenchmark {
+  private static final int YEARS = 5;
+
+  @Param({ "10", "100", "1000" })
+  public int count;
+
+  private Calendar today;
+  private CalendarModel model;
+
+  @Setup public void setUp() {
+    today = Benchmarks.today();
+    model = Benchmarks.newModel(today, YEARS);
+  }
+
+  @Benchmark public Object highlightDays() {
+    Benchmarks.reset(model, today, YEARS);
+    int minDay = model.getMinDay();
+    for (int day = minDay; day < minDay + count; day++) {
+      model.highlightDay(day, Benchmarks.findCell(model, day));
+    }
+    return model;
+  }
+}
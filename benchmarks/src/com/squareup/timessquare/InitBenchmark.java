@@ -0,0 +1,52 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Initializing the picker over 1, 5 and 50 years, and building the months it shows. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class InitBenchmark {
+  @Param({ "1", "5", "50" })
+  public int years;
+
+  private Calendar today;
+  private CalendarModel model;
+
+  @Setup public void setUp() {
+    today = Benchmarks.today();
+    model = Benchmarks.newModel(today, years);
+  }
+
+  /** Resets the model and builds the first month, as showing a new picker does. */
+  @Benchmark public Object init() {
+    Benchmarks.reset(model, today, years);
+    return model.getMonthCells(CalendarDays.epochMonth(model.getMinDay()));
+  }
+
+  /** Resets the model and builds every month, as scrolling through the whole range does. */
+  @Benchmark public void initAndScroll(Blackhole blackhole) {
+    Benchmarks.reset(model, today, years);
+    int lastMonth = CalendarDays.epochMonth(model.getMaxDay() - 1);
+    for (int month = CalendarDays.epochMonth(model.getMinDay()); month <= lastMonth; month++) {
+      blackhole.consume(model.getMonthCells(month));
+    }
+  }
+}
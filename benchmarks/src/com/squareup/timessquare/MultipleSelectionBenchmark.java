@@ -0,0 +1,72 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.squareup.timessquare.CalendarPickerView.SelectionMode;
+
+/** {@link SelectionMode#MULTIPLE} with 10, 100 and 1,000 selected dates, every other day. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class MultipleSelectionBenchmark {
+  /** Every other day of the range is selected, so it must be longer than twice as many days. */
+  private static final int YEARS = 6;
+
+  @Param({ "10", "100", "1000" })
+  public int preselected;
+
+  private Calendar today;
+  private CalendarModel model;
+  private CalendarModel preselectedModel;
+  private int toggledDay;
+
+  @Setup public void setUp() {
+    today = Benchmarks.today();
+    model = Benchmarks.newModel(today, YEARS);
+    preselectedModel = Benchmarks.newModel(today, YEARS);
+    preselect(preselectedModel);
+    // Preselected days are an even number of days from the first one: this one isn't.
+    toggledDay = preselectedModel.getMinDay() + preselected + 1;
+  }
+
+  private void preselect(CalendarModel model) {
+    model.setSelectionMode(SelectionMode.MULTIPLE);
+    int minDay = model.getMinDay();
+    for (int i = 0; i < preselected; i++) {
+      Benchmarks.selectDay(model, minDay + 2 * i);
+    }
+  }
+
+  /** Initializing the picker with the dates selected, as {@code withSelectedDates} does. */
+  @Benchmark public Object selectAll() {
+    Benchmarks.reset(model, today, YEARS);
+    preselect(model);
+    return model;
+  }
+
+  /** Selects a day in the middle of the selection, then unselects it. */
+  @Benchmark public boolean toggleDay() {
+    Benchmarks.selectDay(preselectedModel, toggledDay);
+    return Benchmarks.selectDay(preselectedModel, toggledDay);
+  }
+
+  @Benchmark public Object getSelectedDates() {
+    return preselectedModel.getSelectedDates();
+  }
+}
@@ -0,0 +1,52 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.squareup.timessquare.CalendarPickerView.SelectionMode;
+
+/** Completing a {@link SelectionMode#RANGE} selection that spans 1 or 5 years. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class RangeSelectionBenchmark {
+  @Param({ "1", "5" })
+  public int years;
+
+  private CalendarModel model;
+  private int start;
+  private int end;
+
+  @Setup public void setUp() {
+    model = Benchmarks.newModel(Benchmarks.today(), years + 1);
+    model.setSelectionMode(SelectionMode.RANGE);
+    start = model.getMinDay() + 10;
+    end = Benchmarks.addYears(start, years);
+    completeRange();
+  }
+
+  /** Selects the start, which clears the previous range, then the end. */
+  @Benchmark public boolean completeRange() {
+    Benchmarks.selectDay(model, start);
+    return Benchmarks.selectDay(model, end);
+  }
+
+  /** Expands the range to every day in it. */
+  @Benchmark public Object getSelectedDates() {
+    return model.getSelectedDates();
+  }
+}
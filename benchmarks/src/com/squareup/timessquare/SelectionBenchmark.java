@@ -0,0 +1,52 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static com.squareup.timessquare.CalendarPickerView.SelectionMode;
+
+/**
+ * Selecting a date in each {@link SelectionMode}.  Two days in consecutive months are selected in
+ * turn, which keeps the selection the same from one call to the next: SINGLE replaces one with the
+ * other, MULTIPLE selects both then unselects them, and RANGE alternates between a start and a
+ * range over both months.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class SelectionBenchmark {
+  @Param({ "SINGLE", "MULTIPLE", "RANGE" })
+  public SelectionMode mode;
+
+  private CalendarModel model;
+  private int firstDay;
+  private int secondDay;
+  private boolean second;
+
+  @Setup public void setUp() {
+    model = Benchmarks.newModel(Benchmarks.today(), 1);
+    model.setSelectionMode(mode);
+    // January 25th and February 8th.
+    firstDay = model.getMinDay() + 10;
+    secondDay = firstDay + 14;
+  }
+
+  @Benchmark public boolean selectDay() {
+    second = !second;
+    return Benchmarks.selectDay(model, second ? secondDay : firstDay);
+  }
+}
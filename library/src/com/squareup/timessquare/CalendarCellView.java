@@ -2,12 +2,26 @@
 
 package com.squareup.timessquare;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.os.Build;
 import android.util.AttributeSet;
+import android.view.DragEvent;
 import android.widget.TextView;
 import com.squareup.timessquare.MonthCellDescriptor.RangeState;
 
 public class CalendarCellView extends TextView {
+  /** Flags of the state word passed to {@link #bind(int)}. */
+  static final int FLAG_SELECTED = 1;
+  static final int FLAG_SELECTABLE = 1 << 1;
+  static final int FLAG_CURRENT_MONTH = 1 << 2;
+  static final int FLAG_TODAY = 1 << 3;
+  static final int FLAG_HIGHLIGHTED = 1 << 4;
+  static final int FLAG_RANGE_FIRST = 1 << 5;
+  static final int FLAG_RANGE_MIDDLE = 1 << 6;
+  static final int FLAG_RANGE_LAST = 1 << 7;
+  private static final int FLAGS_RANGE = FLAG_RANGE_FIRST | FLAG_RANGE_MIDDLE | FLAG_RANGE_LAST;
+
   private static final int[] STATE_SELECTABLE = {
       R.attr.state_selectable
   };
@@ -30,65 +44,213 @@ public class CalendarCellView extends TextView {
       R.attr.state_range_last
   };
 
-  private boolean isSelectable = false;
-  private boolean isCurrentMonth = false;
-  private boolean isToday = false;
-  private boolean isHighlighted = false;
-  private RangeState rangeState = RangeState.NONE;
+  /** How many drawable states a cell keeps, enough for the states it cycles through. */
+  private static final int CACHED_STATES = 8;
+  /** Bits of {@link #drawableStateKey()} above the flags. */
+  private static final int KEY_ENABLED = 1 << 8;
+  private static final int KEY_SELECTED = 1 << 9;
+  private static final int KEY_PRESSED = 1 << 10;
+  private static final int KEY_FOCUSED = 1 << 11;
+  private static final int KEY_WINDOW_FOCUSED = 1 << 12;
+  private static final int KEY_ACTIVATED = 1 << 13;
+  private static final int KEY_ACCELERATED = 1 << 14;
+  private static final int KEY_HOVERED = 1 << 15;
+
+  /** The flags currently shown, except {@link #FLAG_SELECTED} which is kept by the view. */
+  private int flags;
+
+  /**
+   * Drawable states built by {@link #onCreateDrawableState}, by their {@link
+   * #drawableStateKey()}, so that rebinding a cell to a state it showed before doesn't allocate.
+   * They're replaced in turn once all are used.  Created on first use, which can come from the
+   * constructor of the super class.
+   */
+  private int[] cachedStateKeys;
+  private int[][] cachedStates;
+  private int cachedStateCount;
+  /**
+   * Whether a drag started and hasn't ended.  The parent gives the cell drag states for that long,
+   * which the view keeps to itself: they can't be part of a {@link #drawableStateKey()}.
+   */
+  private boolean dragging;
 
   @SuppressWarnings("UnusedDeclaration")
   public CalendarCellView(Context context, AttributeSet attrs) {
     super(context, attrs);
   }
 
+  /**
+   * Applies a whole state word made of the {@code FLAG_*} constants.  The drawable state is
+   * refreshed at most once, and not at all if nothing changed.
+   */
+  void bind(int state) {
+    boolean selected = (state & FLAG_SELECTED) != 0;
+    boolean changed = (state & ~FLAG_SELECTED) != flags;
+    flags = state & ~FLAG_SELECTED;
+    if (selected != isSelected()) {
+      // setSelected() refreshes the drawable state, which picks up the new flags too.
+      setSelected(selected);
+    } else if (changed) {
+      refreshDrawableState();
+    }
+  }
+
+  /** Returns the state word for {@code cell}, see {@link #bind(int)}. */
+  static int stateOf(MonthCellDescriptor cell, boolean selected) {
+    int state = selected ? FLAG_SELECTED : 0;
+    if (cell.isSelectable()) {
+      state |= FLAG_SELECTABLE;
+    }
+    if (cell.isCurrentMonth()) {
+      state |= FLAG_CURRENT_MONTH;
+    }
+    if (cell.isToday()) {
+      state |= FLAG_TODAY;
+    }
+    if (cell.isHighlighted()) {
+      state |= FLAG_HIGHLIGHTED;
+    }
+    return state | rangeFlag(cell.getRangeState());
+  }
+
   public void setSelectable(boolean isSelectable) {
-    this.isSelectable = isSelectable;
-    refreshDrawableState();
+    setFlag(FLAG_SELECTABLE, isSelectable);
   }
 
   public void setCurrentMonth(boolean isCurrentMonth) {
-    this.isCurrentMonth = isCurrentMonth;
-    refreshDrawableState();
+    setFlag(FLAG_CURRENT_MONTH, isCurrentMonth);
   }
 
   public void setToday(boolean isToday) {
-    this.isToday = isToday;
-    refreshDrawableState();
+    setFlag(FLAG_TODAY, isToday);
   }
 
   public void setRangeState(MonthCellDescriptor.RangeState rangeState) {
-    this.rangeState = rangeState;
-    refreshDrawableState();
+    setFlags((flags & ~FLAGS_RANGE) | rangeFlag(rangeState));
   }
 
   public void setHighlighted(boolean highlighted) {
-    isHighlighted = highlighted;
+    setFlag(FLAG_HIGHLIGHTED, highlighted);
+  }
+
+  private void setFlag(int flag, boolean on) {
+    setFlags(on ? flags | flag : flags & ~flag);
+  }
+
+  private void setFlags(int newFlags) {
+    if (newFlags != flags) {
+      flags = newFlags;
+      refreshDrawableState();
+    }
+  }
+
+  private static int rangeFlag(RangeState rangeState) {
+    switch (rangeState) {
+      case FIRST:
+        return FLAG_RANGE_FIRST;
+      case MIDDLE:
+        return FLAG_RANGE_MIDDLE;
+      case LAST:
+        return FLAG_RANGE_LAST;
+      default:
+        return 0;
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+  @Override public boolean dispatchDragEvent(DragEvent event) {
+    if (event.getAction() == DragEvent.ACTION_DRAG_STARTED) {
+      dragging = true;
+    } else if (event.getAction() == DragEvent.ACTION_DRAG_ENDED) {
+      dragging = false;
+    }
+    return super.dispatchDragEvent(event);
   }
 
   @Override protected int[] onCreateDrawableState(int extraSpace) {
+    if (extraSpace != 0 || dragging) {
+      // A subclass merges its own states into the array, or the drag states may be in it: it
+      // can't be shared.
+      return createDrawableState(extraSpace);
+    }
+    if (cachedStates == null) {
+      cachedStateKeys = new int[CACHED_STATES];
+      cachedStates = new int[CACHED_STATES][];
+    }
+    int key = drawableStateKey();
+    int cached = Math.min(cachedStateCount, CACHED_STATES);
+    for (int i = 0; i < cached; i++) {
+      if (cachedStateKeys[i] == key) {
+        return cachedStates[i];
+      }
+    }
+    int[] drawableState = createDrawableState(0);
+    int slot = cachedStateCount++ % CACHED_STATES;
+    cachedStateKeys[slot] = key;
+    cachedStates[slot] = drawableState;
+    return drawableState;
+  }
+
+  /**
+   * Returns what the drawable state depends on: the flags, and the view states that {@link
+   * android.view.View#onCreateDrawableState} reads, except the drag states which aren't cached.
+   */
+  @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+  private int drawableStateKey() {
+    int key = flags;
+    if (isEnabled()) {
+      key |= KEY_ENABLED;
+    }
+    if (isSelected()) {
+      key |= KEY_SELECTED;
+    }
+    if (isPressed()) {
+      key |= KEY_PRESSED;
+    }
+    if (isFocused()) {
+      key |= KEY_FOCUSED;
+    }
+    if (hasWindowFocus()) {
+      key |= KEY_WINDOW_FOCUSED;
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+      if (isActivated()) {
+        key |= KEY_ACTIVATED;
+      }
+      if (isHardwareAccelerated()) {
+        key |= KEY_ACCELERATED;
+      }
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH && isHovered()) {
+      key |= KEY_HOVERED;
+    }
+    return key;
+  }
+
+  private int[] createDrawableState(int extraSpace) {
     final int[] drawableState = super.onCreateDrawableState(extraSpace + 5);
 
-    if (isSelectable) {
+    if ((flags & FLAG_SELECTABLE) != 0) {
       mergeDrawableStates(drawableState, STATE_SELECTABLE);
     }
 
-    if (isCurrentMonth) {
+    if ((flags & FLAG_CURRENT_MONTH) != 0) {
       mergeDrawableStates(drawableState, STATE_CURRENT_MONTH);
     }
 
-    if (isToday) {
+    if ((flags & FLAG_TODAY) != 0) {
       mergeDrawableStates(drawableState, STATE_TODAY);
     }
 
-    if (isHighlighted) {
+    if ((flags & FLAG_HIGHLIGHTED) != 0) {
       mergeDrawableStates(drawableState, STATE_HIGHLIGHTED);
     }
 
-    if (rangeState == MonthCellDescriptor.RangeState.FIRST) {
+    if ((flags & FLAG_RANGE_FIRST) != 0) {
       mergeDrawableStates(drawableState, STATE_RANGE_FIRST);
-    } else if (rangeState == MonthCellDescriptor.RangeState.MIDDLE) {
+    } else if ((flags & FLAG_RANGE_MIDDLE) != 0) {
       mergeDrawableStates(drawableState, STATE_RANGE_MIDDLE);
-    } else if (rangeState == RangeState.LAST) {
+    } else if ((flags & FLAG_RANGE_LAST) != 0) {
       mergeDrawableStates(drawableState, STATE_RANGE_LAST);
     }
 
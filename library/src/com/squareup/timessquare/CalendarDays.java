@@ -0,0 +1,171 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Date arithmetic on "epoch days": the number of days since 1970-01-01 in the proleptic Gregorian
+ * calendar.  Years, months and days of the week are derived with integer math so that building
+ * and comparing cells doesn't need {@link Calendar} or {@link Date} instances.  Months are
+ * zero-based and days of the week use the {@link Calendar#SUNDAY} through {@link
+ * Calendar#SATURDAY} constants, to match {@link Calendar}.
+ */
+final class CalendarDays {
+  static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+  private static final long MILLIS_PER_HOUR = 60 * 60 * 1000L;
+
+  /** Days from 0000-03-01 to 1970-01-01. */
+  private static final int DAYS_0000_TO_1970 = 719468;
+  private static final int DAYS_PER_ERA = 146097;
+
+  private CalendarDays() {
+    // No instances.
+  }
+
+  /** Returns the epoch day of {@code dayOfMonth} in the zero-based {@code month}. */
+  static int of(int year, int month, int dayOfMonth) {
+    // Shift the year to start in March so that the leap day is the last day of the year.
+    int m = month + 1;
+    int y = m <= 2 ? year - 1 : year;
+    int era = (y >= 0 ? y : y - 399) / 400;
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5 + dayOfMonth - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+  }
+
+  static int year(int day) {
+    int z = day + DAYS_0000_TO_1970;
+    int era = (z >= 0 ? z : z - DAYS_PER_ERA + 1) / DAYS_PER_ERA;
+    int dayOfEra = z - era * DAYS_PER_ERA;
+    int yearOfEra = yearOfEra(dayOfEra);
+    int marchMonth = marchMonth(dayOfEra - dayOfYear(yearOfEra));
+    return yearOfEra + era * 400 + (marchMonth >= 10 ? 1 : 0);
+  }
+
+  /** Returns the zero-based month of {@code day}, e.g. {@link Calendar#JANUARY}. */
+  static int month(int day) {
+    int dayOfEra = dayOfEra(day);
+    int marchMonth = marchMonth(dayOfEra - dayOfYear(yearOfEra(dayOfEra)));
+    return marchMonth < 10 ? marchMonth + 2 : marchMonth - 10;
+  }
+
+  static int dayOfMonth(int day) {
+    int dayOfEra = dayOfEra(day);
+    int dayOfYear = dayOfEra - dayOfYear(yearOfEra(dayOfEra));
+    return dayOfYear - (153 * marchMonth(dayOfYear) + 2) / 5 + 1;
+  }
+
+  /** Returns the day of the week of {@code day}, from {@link Calendar#SUNDAY} to SATURDAY. */
+  static int dayOfWeek(int day) {
+    // 1970-01-01 was a Thursday.
+    int dayOfWeek = (day + 4) % 7;
+    return (dayOfWeek < 0 ? dayOfWeek + 7 : dayOfWeek) + Calendar.SUNDAY;
+  }
+
+  static int daysInMonth(int year, int month) {
+    switch (month) {
+      case Calendar.FEBRUARY:
+        return isLeapYear(year) ? 29 : 28;
+      case Calendar.APRIL:
+      case Calendar.JUNE:
+      case Calendar.SEPTEMBER:
+      case Calendar.NOVEMBER:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  static boolean isLeapYear(int year) {
+    return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+  }
+
+  /** Returns a month counter ({@code year * 12 + month}) that can be compared and subtracted. */
+  static int epochMonth(int day) {
+    return year(day) * 12 + month(day);
+  }
+
+  static int epochMonth(int year, int month) {
+    return year * 12 + month;
+  }
+
+  /** Returns the first day of an {@link #epochMonth(int) epoch month}. */
+  static int firstDayOfEpochMonth(int epochMonth) {
+    int year = epochMonth >= 0 ? epochMonth / 12 : (epochMonth - 11) / 12;
+    return of(year, epochMonth - year * 12, 1);
+  }
+
+  /**
+   * Returns the offset of {@code day} from the start of its week, i.e. the column it occupies in a
+   * week that starts on {@code firstDayOfWeek}.
+   */
+  static int weekOffset(int day, int firstDayOfWeek) {
+    int offset = dayOfWeek(day) - firstDayOfWeek;
+    return offset < 0 ? offset + 7 : offset;
+  }
+
+  /** Returns the day that {@code millis} falls on in {@code timeZone}. */
+  static int fromMillis(long millis, TimeZone timeZone) {
+    long local = millis + timeZone.getOffset(millis);
+    long day = local / MILLIS_PER_DAY;
+    if (local % MILLIS_PER_DAY < 0) {
+      day--;
+    }
+    return (int) day;
+  }
+
+  static int fromDate(Date date, TimeZone timeZone) {
+    return fromMillis(date.getTime(), timeZone);
+  }
+
+  static int fromCalendar(Calendar calendar) {
+    return fromMillis(calendar.getTimeInMillis(), calendar.getTimeZone());
+  }
+
+  /** Returns the first instant of {@code day} in {@code timeZone}, normally local midnight. */
+  static long toMillis(int day, TimeZone timeZone) {
+    long local = day * MILLIS_PER_DAY;
+    // Like Calendar, resolve an ambiguous midnight (when clocks are set back) to standard time.
+    long millis = local - timeZone.getOffset(local - timeZone.getRawOffset());
+    while (fromMillis(millis, timeZone) < day) {
+      // Midnight was skipped by a DST transition: the day starts at the end of the gap.
+      millis += MILLIS_PER_HOUR;
+    }
+    return millis;
+  }
+
+  static Date toDate(int day, TimeZone timeZone) {
+    return new Date(toMillis(day, timeZone));
+  }
+
+  /** Clears out the hours/minutes/seconds/millis of a Calendar. */
+  static void setMidnight(Calendar cal) {
+    cal.set(Calendar.HOUR_OF_DAY, 0);
+    cal.set(Calendar.MINUTE, 0);
+    cal.set(Calendar.SECOND, 0);
+    cal.set(Calendar.MILLISECOND, 0);
+  }
+
+  private static int dayOfEra(int day) {
+    int z = day + DAYS_0000_TO_1970;
+    int era = (z >= 0 ? z : z - DAYS_PER_ERA + 1) / DAYS_PER_ERA;
+    return z - era * DAYS_PER_ERA;
+  }
+
+  private static int yearOfEra(int dayOfEra) {
+    return (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / (DAYS_PER_ERA - 1)) / 365;
+  }
+
+  /** Returns the day of a March-based year on which {@code yearOfEra} starts. */
+  private static int dayOfYear(int yearOfEra) {
+    return 365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100;
+  }
+
+  /** Returns the month of a March-based year (0 = March, 11 = February). */
+  private static int marchMonth(int dayOfYear) {
+    return (5 * dayOfYear + 2) / 153;
+  }
+}
@@ -0,0 +1,118 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import android.content.Context;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * The month labels, weekday names and full dates shown by the calendars of a locale.  Instances
+ * are shared by every view of the process that uses the same locale, first day of the week and
+ * format patterns, so that creating views or calling init() again doesn't build formatters.
+ * <p>
+ * Days are {@link CalendarDays} epoch days and are formatted in UTC, where an epoch day starts
+ * exactly at {@code day * MILLIS_PER_DAY}.  Formatters aren't thread-safe, so they're only used
+ * while holding the instance's lock.
+ */
+final class CalendarFormats {
+  /** How many month labels each instance keeps, about ten years' worth. */
+  private static final int MONTH_LABEL_CACHE_SIZE = 120;
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+  /** 1970-01-04, the first Sunday on or after the epoch. */
+  private static final int FIRST_SUNDAY = 3;
+
+  private static final Map<String, CalendarFormats> INSTANCES =
+      new HashMap<String, CalendarFormats>();
+
+  private final DateFormat monthNameFormat;
+  private final DateFormat fullDateFormat;
+  private final String[] weekdayNames;
+  private final MonthLabelCache monthLabels = new MonthLabelCache();
+
+  /**
+   * Returns the formats of {@code locale} for weeks starting on {@code firstDayOfWeek}, using the
+   * {@code month_name_format} and {@code day_name_format} patterns of {@code context}.
+   */
+  static CalendarFormats get(Context context, Locale locale, int firstDayOfWeek) {
+    String monthPattern = context.getString(R.string.month_name_format);
+    String dayPattern = context.getString(R.string.day_name_format);
+    String key = locale + "|" + firstDayOfWeek + "|" + monthPattern + "|" + dayPattern;
+    synchronized (INSTANCES) {
+      CalendarFormats formats = INSTANCES.get(key);
+      if (formats == null) {
+        formats = new CalendarFormats(locale, firstDayOfWeek, monthPattern, dayPattern);
+        INSTANCES.put(key, formats);
+      }
+      return formats;
+    }
+  }
+
+  private CalendarFormats(Locale locale, int firstDayOfWeek, String monthPattern,
+      String dayPattern) {
+    monthNameFormat = new SimpleDateFormat(monthPattern, locale);
+    monthNameFormat.setTimeZone(UTC);
+    fullDateFormat = DateFormat.getDateInstance(DateFormat.MEDIUM, locale);
+    fullDateFormat.setTimeZone(UTC);
+    DateFormat weekdayNameFormat = new SimpleDateFormat(dayPattern, locale);
+    weekdayNameFormat.setTimeZone(UTC);
+    weekdayNames = weekdayNames(weekdayNameFormat, firstDayOfWeek);
+  }
+
+  /**
+   * Returns the names of the seven days of the week starting on {@code firstDayOfWeek}, formatted
+   * with {@code weekdayNameFormat}.
+   */
+  static String[] weekdayNames(DateFormat weekdayNameFormat, int firstDayOfWeek) {
+    String[] names = new String[7];
+    TimeZone timeZone = weekdayNameFormat.getTimeZone();
+    for (int offset = 0; offset < 7; offset++) {
+      int day = FIRST_SUNDAY + (firstDayOfWeek - Calendar.SUNDAY + offset) % 7;
+      names[offset] = weekdayNameFormat.format(CalendarDays.toDate(day, timeZone));
+    }
+    return names;
+  }
+
+  /** Returns the weekday names starting on the first day of the week.  Don't modify it. */
+  String[] getWeekdayNames() {
+    return weekdayNames;
+  }
+
+  /** Returns the label of the month containing {@code day}, e.g. "November 2012". */
+  synchronized String monthLabel(int day) {
+    int epochMonth = CalendarDays.epochMonth(day);
+    String label = monthLabels.get(epochMonth);
+    if (label == null) {
+      label = monthNameFormat.format(utcDate(CalendarDays.firstDayOfEpochMonth(epochMonth)));
+      monthLabels.put(epochMonth, label);
+    }
+    return label;
+  }
+
+  synchronized String fullDate(int day) {
+    return fullDateFormat.format(utcDate(day));
+  }
+
+  private static Date utcDate(int day) {
+    return new Date(day * CalendarDays.MILLIS_PER_DAY);
+  }
+
+  /** The labels of the most recently shown months, by epoch month. */
+  private static final class MonthLabelCache extends LinkedHashMap<Integer, String> {
+    private static final long serialVersionUID = 0;
+
+    MonthLabelCache() {
+      super(MONTH_LABEL_CACHE_SIZE, 0.75f, true);
+    }
+
+    @Override protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+      return size() > MONTH_LABEL_CACHE_SIZE;
+    }
+  }
+}
@@ -18,8 +18,6 @@ import static android.view.View.MeasureSpec.makeMeasureSpec;
  */
 public class CalendarGridView extends ViewGroup {
   private final Paint dividerPaint = new Paint();
-  private int oldWidthMeasureSize;
-  private int oldNumRows;
 
   public CalendarGridView(Context context, AttributeSet attrs) {
     super(context, attrs);
@@ -59,40 +57,37 @@ public class CalendarGridView extends ViewGroup {
   }
 
   @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-    Logr.d("Grid.onMeasure w=%s h=%s", MeasureSpec.toString(widthMeasureSpec),
-        MeasureSpec.toString(heightMeasureSpec));
     int widthMeasureSize = MeasureSpec.getSize(widthMeasureSpec);
-    if (oldWidthMeasureSize == widthMeasureSize) {
-      Logr.d("SKIP Grid.onMeasure");
-      setMeasuredDimension(getMeasuredWidth(), getMeasuredHeight());
-      return;
-    }
-    long start = System.currentTimeMillis();
-    oldWidthMeasureSize = widthMeasureSize;
+    long start = CalendarMetrics.start();
     int cellSize = widthMeasureSize / 7;
     // Remove any extra pixels since /7 is unlikely to give whole nums.
     widthMeasureSize = cellSize * 7;
     int totalHeight = 0;
+    int measuredRows = 0;
     final int rowWidthSpec = makeMeasureSpec(widthMeasureSize, EXACTLY);
     final int rowHeightSpec = makeMeasureSpec(cellSize, EXACTLY);
     for (int c = 0, numChildren = getChildCount(); c < numChildren; c++) {
       final View child = getChildAt(c);
       if (child.getVisibility() == View.VISIBLE) {
-        if (c == 0) { // It's the header: height should be wrap_content.
-          measureChild(child, rowWidthSpec, makeMeasureSpec(cellSize, AT_MOST));
-        } else {
-          measureChild(child, rowWidthSpec, rowHeightSpec);
+        // Rows keep their size from one month to the next: only measure the ones that changed.
+        if (child.isLayoutRequested() || child.getMeasuredWidth() != widthMeasureSize) {
+          if (c == 0) { // It's the header: height should be wrap_content.
+            measureChild(child, rowWidthSpec, makeMeasureSpec(cellSize, AT_MOST));
+          } else {
+            measureChild(child, rowWidthSpec, rowHeightSpec);
+          }
+          measuredRows++;
         }
         totalHeight += child.getMeasuredHeight();
       }
     }
     final int measuredWidth = widthMeasureSize + 2; // Fudge factor to make the borders show up.
     setMeasuredDimension(measuredWidth, totalHeight);
-    Logr.d("Grid.onMeasure %d ms", System.currentTimeMillis() - start);
+    CalendarMetrics.end(CalendarMetrics.Event.MEASURE, start, measuredRows);
   }
 
   @Override protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-    long start = System.currentTimeMillis();
+    long start = CalendarMetrics.start();
     top = 0;
     for (int c = 0, numChildren = getChildCount(); c < numChildren; c++) {
       final View child = getChildAt(c);
@@ -100,14 +95,16 @@ public class CalendarGridView extends ViewGroup {
       child.layout(left, top, right, top + rowHeight);
       top += rowHeight;
     }
-    Logr.d("Grid.onLayout %d ms", System.currentTimeMillis() - start);
+    CalendarMetrics.end(CalendarMetrics.Event.LAYOUT, start, getChildCount());
   }
 
+  /**
+   * Does nothing: rows are measured according to their visibility, so showing or hiding one is
+   * enough to change the height of the grid.
+   *
+   * @deprecated Show or hide the week rows instead.
+   */
+  @Deprecated
   public void setNumRows(int numRows) {
-    if (oldNumRows != numRows) {
-      // If the number of rows changes, make sure we do a re-measure next time around.
-      oldWidthMeasureSize = 0;
-    }
-    oldNumRows = numRows;
   }
 }
@@ -0,0 +1,71 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+/**
+ * Receives what the calendar views spend their time on, e.g. to report it to telemetry in release
+ * builds.  {@link #attach(CalendarMetrics) Attach} an implementation to time every calendar view
+ * of the process; while none is attached, nothing is timed.
+ * <p>
+ * Events are reported on the thread that did the work: month building and filtering may run on a
+ * background thread, so implementations must be thread-safe and should return quickly.
+ */
+public abstract class CalendarMetrics {
+  public enum Event {
+    /** A picker's {@code init}.  The count is the number of months it shows. */
+    INIT,
+    /** Building the cells of a month or week.  The count is the number of cells. */
+    MONTH_BUILD,
+    /** Binding a month view to its cells.  The count is the number of cells. */
+    BIND,
+    /** Measuring a month's grid.  The count is the number of rows that were measured again. */
+    MEASURE,
+    /** Laying out a month's grid.  The count is the number of rows. */
+    LAYOUT,
+    /** Inflating or creating a month view.  The count is 1. */
+    INFLATE,
+    /**
+     * Running the {@link CalendarPickerView.DateSelectableFilter} over a month.  The count is the
+     * number of calls made to the filter.
+     */
+    FILTER
+  }
+
+  /** Returned by {@link #start()} when nothing is attached. */
+  static final long NOT_TIMED = Long.MIN_VALUE;
+
+  private static volatile CalendarMetrics attached;
+
+  /** Reports the events of every calendar view to {@code metrics}, instead of any attached one. */
+  public static void attach(CalendarMetrics metrics) {
+    if (metrics == null) {
+      throw new IllegalArgumentException("metrics must not be null.");
+    }
+    attached = metrics;
+  }
+
+  /** Stops reporting events. */
+  public static void detach() {
+    attached = null;
+  }
+
+  /**
+   * Called once per event.
+   *
+   * @param durationNanos how long the event took, measured with {@link System#nanoTime()}.
+   * @param count how many items the event covered, see {@link Event}.
+   */
+  public abstract void onEvent(Event event, long durationNanos, int count);
+
+  /** Returns the start time of an event, or {@link #NOT_TIMED} if nothing is attached. */
+  static long start() {
+    return attached == null ? NOT_TIMED : System.nanoTime();
+  }
+
+  /** Reports {@code event}, which began at {@code start}, unless it wasn't timed. */
+  static void end(Event event, long start, int count) {
+    CalendarMetrics metrics = attached;
+    if (metrics != null && start != NOT_TIMED) {
+      metrics.onEvent(event, System.nanoTime() - start, count);
+    }
+  }
+}
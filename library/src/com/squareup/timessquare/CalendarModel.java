@@ -0,0 +1,503 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import com.squareup.timessquare.CalendarPickerView.BulkDateSelectableFilter;
+import com.squareup.timessquare.CalendarPickerView.DateSelectableFilter;
+import com.squareup.timessquare.CalendarPickerView.SelectionMode;
+import com.squareup.timessquare.MonthCellDescriptor.RangeState;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * The months, cells, selection and highlighted days behind a calendar view, without the view.
+ * Days are {@link CalendarDays} epoch days and months are epoch months.  Cells are built when they
+ * are first asked for and kept in a bounded cache; the cached cells follow the selection, and the
+ * {@link Listener} is told which days changed so that their views can be rebound.
+ * <p>
+ * Only plain Java is used, so the model can be tested and benchmarked without Android.  It isn't
+ * thread-safe: only the static builders may run on another thread.
+ */
+final class CalendarModel {
+  interface Listener {
+    /** The cells of the days from {@code firstDay} to {@code lastDay} changed state. */
+    void onDaysChanged(int firstDay, int lastDay);
+  }
+
+  final DaySet selectedDays = new DaySet();
+  final DaySet highlightedDays = new DaySet();
+  final List<MonthCellDescriptor> selectedCells = new ArrayList<MonthCellDescriptor>();
+  final List<MonthCellDescriptor> highlightedCells = new ArrayList<MonthCellDescriptor>();
+  private final MonthCache<List<List<MonthCellDescriptor>>> cells;
+  private final Listener listener;
+  private SelectableDays selectableDays = new SelectableDays(0);
+
+  private SelectionMode selectionMode = SelectionMode.SINGLE;
+  private DateSelectableFilter filter;
+  private Calendar today;
+  private TimeZone timeZone;
+  /** First selectable day. */
+  private int minDay;
+  /** Day after the last selectable day. */
+  private int maxDay;
+
+  /**
+   * @param monthCacheSize how many months of cells are kept.
+   * @param listener told about changed days, or null.
+   */
+  CalendarModel(int monthCacheSize, Listener listener) {
+    cells = new MonthCache<List<List<MonthCellDescriptor>>>(monthCacheSize);
+    this.listener = listener;
+  }
+
+  /**
+   * Starts over with the days from {@code minDay} to {@code maxDay}, exclusive, as the selectable
+   * ones: the selection, highlighted days, cells and filtered days are cleared and the selection
+   * mode is {@link SelectionMode#SINGLE}.  Filtered days are remembered for {@code
+   * filteredMonths} months around the last ones filtered.
+   * <p>
+   * {@code today} isn't copied: cells built later use its current day, and the first day of the
+   * week of its locale.
+   */
+  void reset(Calendar today, TimeZone timeZone, int minDay, int maxDay, int filteredMonths) {
+    this.today = today;
+    this.timeZone = timeZone;
+    this.minDay = minDay;
+    this.maxDay = maxDay;
+    selectionMode = SelectionMode.SINGLE;
+    selectedDays.clear();
+    selectedCells.clear();
+    highlightedDays.clear();
+    highlightedCells.clear();
+    cells.clear();
+    selectableDays = new SelectableDays(filteredMonths);
+  }
+
+  SelectionMode getSelectionMode() {
+    return selectionMode;
+  }
+
+  void setSelectionMode(SelectionMode selectionMode) {
+    this.selectionMode = selectionMode;
+  }
+
+  DateSelectableFilter getFilter() {
+    return filter;
+  }
+
+  /** Sets the filter of selectable days, forgetting what the previous one answered. */
+  void setFilter(DateSelectableFilter filter) {
+    this.filter = filter;
+    invalidateFilter();
+  }
+
+  /** Forgets what the filter answered: months are filtered and built again when next needed. */
+  void invalidateFilter() {
+    selectableDays = new SelectableDays(selectableDays.capacity());
+    cells.clear();
+  }
+
+  /**
+   * Returns the days the filter answered for so far, by epoch month.  A background thread may
+   * put the masks of {@link #computeSelectableMask} in it.
+   */
+  SelectableDays getSelectableDays() {
+    return selectableDays;
+  }
+
+  Calendar getToday() {
+    return today;
+  }
+
+  TimeZone getTimeZone() {
+    return timeZone;
+  }
+
+  int getMinDay() {
+    return minDay;
+  }
+
+  int getMaxDay() {
+    return maxDay;
+  }
+
+  int getFirstDayOfWeek() {
+    return today.getFirstDayOfWeek();
+  }
+
+  /** Whether {@code day} is in the selectable range and accepted by the filter. */
+  boolean isDateSelectable(int day) {
+    return betweenDates(day, minDay, maxDay) && SelectableDays.contains(
+        getSelectableMask(CalendarDays.epochMonth(day)), CalendarDays.dayOfMonth(day));
+  }
+
+  /**
+   * Returns the {@link SelectableDays} mask of {@code epochMonth}, running the filter now if it
+   * hasn't been yet.
+   */
+  int getSelectableMask(int epochMonth) {
+    if (epochMonth < CalendarDays.epochMonth(minDay)
+        || CalendarDays.firstDayOfEpochMonth(epochMonth) >= maxDay) {
+      // Nothing to filter: don't let the month take the place of one in range.
+      return 0;
+    }
+    if (!selectableDays.isKnown(epochMonth)) {
+      selectableDays.put(epochMonth, computeSelectableMask(
+          CalendarDays.firstDayOfEpochMonth(epochMonth), filter, minDay, maxDay, timeZone));
+    }
+    return selectableDays.get(epochMonth);
+  }
+
+  /**
+   * Returns the mask of the days in range that {@code filter} accepts, for the month starting on
+   * {@code firstDay}.  May be called from any thread, if the filter allows it.
+   */
+  static int computeSelectableMask(int firstDay, DateSelectableFilter filter, int minDay,
+      int maxDay, TimeZone timeZone) {
+    final int length =
+        CalendarDays.daysInMonth(CalendarDays.year(firstDay), CalendarDays.month(firstDay));
+    // Only days in [minDay, maxDay) can be selected, so only those are passed to the filter.
+    final int start = Math.max(firstDay, minDay);
+    final int end = Math.min(firstDay + length, maxDay);
+    int mask = 0;
+    if (start >= end) {
+      return mask;
+    } else if (filter instanceof BulkDateSelectableFilter) {
+      long startTime = CalendarMetrics.start();
+      BitSet selectable = new BitSet(end - start);
+      ((BulkDateSelectableFilter) filter).getSelectableDates(
+          CalendarDays.toDate(start, timeZone), end - start, selectable);
+      for (int i = selectable.nextSetBit(0); i >= 0 && i < end - start;
+          i = selectable.nextSetBit(i + 1)) {
+        mask |= 1 << (start - firstDay + i);
+      }
+      CalendarMetrics.end(CalendarMetrics.Event.FILTER, startTime, 1);
+    } else if (filter != null) {
+      long startTime = CalendarMetrics.start();
+      for (int day = start; day < end; day++) {
+        if (filter.isDateSelectable(CalendarDays.toDate(day, timeZone))) {
+          mask |= 1 << (day - firstDay);
+        }
+      }
+      CalendarMetrics.end(CalendarMetrics.Event.FILTER, startTime, end - start);
+    } else {
+      for (int day = start; day < end; day++) {
+        mask |= 1 << (day - firstDay);
+      }
+    }
+    return mask;
+  }
+
+  /** Returns the cells of {@code epochMonth}, building them if they aren't cached. */
+  List<List<MonthCellDescriptor>> getMonthCells(int epochMonth) {
+    List<List<MonthCellDescriptor>> monthCells = cells.get(epochMonth);
+    if (monthCells == null) {
+      monthCells = buildMonthCells(epochMonth, getFirstDayOfWeek(), timeZone,
+          CalendarDays.fromCalendar(today), getSelectableMask(epochMonth));
+      putMonthCells(epochMonth, monthCells);
+    }
+    return monthCells;
+  }
+
+  /**
+   * Builds the cells of {@code epochMonth} with their current states, without caching them: later
+   * selection changes don't update them.
+   */
+  List<List<MonthCellDescriptor>> buildMonthCells(int epochMonth) {
+    List<List<MonthCellDescriptor>> monthCells = buildMonthCells(epochMonth, getFirstDayOfWeek(),
+        timeZone, CalendarDays.fromCalendar(today), getSelectableMask(epochMonth));
+    updateStates(monthCells);
+    return monthCells;
+  }
+
+  /** Returns the cached cells of {@code epochMonth}, or null. */
+  List<List<MonthCellDescriptor>> getCachedMonthCells(int epochMonth) {
+    return cells.get(epochMonth);
+  }
+
+  /**
+   * Caches {@code monthCells}, built by {@link #buildMonthCells}, as the cells of {@code
+   * epochMonth} unless they're already cached.  Their states are resolved against the selection,
+   * and they replace any stale instances still referenced by {@link #selectedCells} and {@link
+   * #highlightedCells} so that later selection changes reach the cells that are being displayed.
+   */
+  void putMonthCells(int epochMonth, List<List<MonthCellDescriptor>> monthCells) {
+    if (cells.get(epochMonth) != null) {
+      return;
+    }
+    updateStates(monthCells);
+    cells.put(epochMonth, monthCells);
+    replaceStaleCells(epochMonth, monthCells, selectedCells);
+    replaceStaleCells(epochMonth, monthCells, highlightedCells);
+  }
+
+  private static void replaceStaleCells(int epochMonth, List<List<MonthCellDescriptor>> monthCells,
+      List<MonthCellDescriptor> stateCells) {
+    for (int i = 0; i < stateCells.size(); i++) {
+      int day = stateCells.get(i).getDay();
+      if (CalendarDays.epochMonth(day) == epochMonth) {
+        stateCells.set(i, getCell(monthCells, day));
+      }
+    }
+  }
+
+  /**
+   * Builds the cells of {@code epochMonth}, from the first day of the week containing its first
+   * day to the end of the week containing its last day.  Days set in {@code selectableMask} can be
+   * selected, and the cells' dates are in {@code timeZone}.  Cells aren't selected or highlighted:
+   * {@link #updateStates} does that.  Safe to call from any thread.
+   */
+  static List<List<MonthCellDescriptor>> buildMonthCells(int epochMonth, int firstDayOfWeek,
+      TimeZone timeZone, int todayDay, int selectableMask) {
+    long start = CalendarMetrics.start();
+    List<List<MonthCellDescriptor>> monthCells = new ArrayList<List<MonthCellDescriptor>>(6);
+    final int firstDay = CalendarDays.firstDayOfEpochMonth(epochMonth);
+    final int lastDay =
+        firstDay + CalendarDays.daysInMonth(CalendarDays.year(firstDay),
+            CalendarDays.month(firstDay)) - 1;
+
+    // Start at the beginning of the week containing the first of the month.
+    int day = firstDay - CalendarDays.weekOffset(firstDay, firstDayOfWeek);
+    int value = CalendarDays.dayOfMonth(day);
+    while (day <= lastDay) {
+      List<MonthCellDescriptor> weekCells = new ArrayList<MonthCellDescriptor>(7);
+      monthCells.add(weekCells);
+      for (int c = 0; c < 7; c++, day++, value++) {
+        if (day == firstDay || day == lastDay + 1) {
+          value = 1;
+        }
+        boolean isCurrentMonth = day >= firstDay && day <= lastDay;
+        boolean isSelectable = isCurrentMonth && SelectableDays.contains(selectableMask, value);
+        weekCells.add(new MonthCellDescriptor(day, timeZone, isCurrentMonth, isSelectable, false,
+            day == todayDay, false, value, RangeState.NONE));
+      }
+    }
+    CalendarMetrics.end(CalendarMetrics.Event.MONTH_BUILD, start, monthCells.size() * 7);
+    return monthCells;
+  }
+
+  /**
+   * Builds the 7 cells of the week starting on {@code weekStart}.  The week belongs to the month
+   * that has most of its days: like in {@link #buildMonthCells}, the days of the other month are
+   * neither current nor selectable.  The cells aren't cached: {@link #updateStates} keeps them up
+   * to date.
+   */
+  List<MonthCellDescriptor> buildWeek(int weekStart) {
+    long start = CalendarMetrics.start();
+    final int todayDay = CalendarDays.fromCalendar(today);
+    final int epochMonth = CalendarDays.epochMonth(weekStart + 3);
+    List<MonthCellDescriptor> weekCells = new ArrayList<MonthCellDescriptor>(7);
+    for (int day = weekStart; day < weekStart + 7; day++) {
+      boolean isCurrentMonth = CalendarDays.epochMonth(day) == epochMonth;
+      weekCells.add(new MonthCellDescriptor(day, timeZone, isCurrentMonth,
+          isCurrentMonth && isDateSelectable(day), false, day == todayDay, false,
+          CalendarDays.dayOfMonth(day), RangeState.NONE));
+    }
+    updateWeekStates(weekCells);
+    CalendarMetrics.end(CalendarMetrics.Event.MONTH_BUILD, start, 7);
+    return weekCells;
+  }
+
+  /** Resolves the selected, highlighted and range states of {@code monthCells}. */
+  void updateStates(List<List<MonthCellDescriptor>> monthCells) {
+    for (int i = 0; i < monthCells.size(); i++) {
+      updateWeekStates(monthCells.get(i));
+    }
+  }
+
+  private void updateWeekStates(List<MonthCellDescriptor> weekCells) {
+    for (int i = 0; i < weekCells.size(); i++) {
+      MonthCellDescriptor cell = weekCells.get(i);
+      int day = cell.getDay();
+      cell.setSelected(cell.isCurrentMonth() && selectedDays.contains(day));
+      cell.setHighlighted(highlightedDays.contains(day));
+      cell.setRangeState(getRangeState(day, cell.isSelectable(), selectionMode, selectedDays));
+    }
+  }
+
+  /**
+   * Selects {@code day}, shown by {@code cell}, according to the {@link SelectionMode}.  In
+   * {@link SelectionMode#MULTIPLE} a selected day is unselected instead.  Returns whether the day
+   * is now selected.
+   */
+  boolean selectDay(int day, MonthCellDescriptor cell) {
+    boolean select = true;
+
+    // Remember the current range so that its cells can be reset once the selection changed.
+    boolean hadRange = selectionMode == SelectionMode.RANGE && selectedDays.size() > 1;
+    int oldStart = hadRange ? selectedDays.first() : 0;
+    int oldEnd = hadRange ? selectedDays.last() : 0;
+
+    switch (selectionMode) {
+      case RANGE:
+        if (selectedDays.size() > 1) {
+          // We've already got a range selected: clear the old one.
+          clearOldSelections();
+        } else if (selectedDays.size() == 1 && day < selectedDays.first()) {
+          // We're moving the start of the range back in time: clear the old start date.
+          clearOldSelections();
+        }
+        break;
+
+      case MULTIPLE:
+        select = !applyMultiUnselect(day);
+        break;
+
+      case SINGLE:
+        clearOldSelections();
+        break;
+      default:
+        throw new IllegalStateException("Unknown selectionMode " + selectionMode);
+    }
+
+    if (select) {
+      // Select a new cell.
+      if (selectedCells.size() == 0 || !selectedCells.get(0).equals(cell)) {
+        selectedCells.add(cell);
+        cell.setSelected(true);
+      }
+      selectedDays.add(day);
+      daysChanged(day, day);
+    }
+
+    // A range is only stored as its two ends: update the cells of the old and new range.
+    if (hadRange) {
+      updateRangeStates(oldStart, oldEnd);
+    }
+    if (selectionMode == SelectionMode.RANGE && selectedDays.size() > 1) {
+      updateRangeStates(selectedDays.first(), selectedDays.last());
+    }
+    return select;
+  }
+
+  /**
+   * Recomputes the range state of the cached cells from {@code start} to {@code end}.  Months that
+   * aren't cached are skipped: they get the current range when they're built.
+   */
+  private void updateRangeStates(int start, int end) {
+    int lastMonth = CalendarDays.epochMonth(end);
+    for (int epochMonth = CalendarDays.epochMonth(start); epochMonth <= lastMonth; epochMonth++) {
+      List<List<MonthCellDescriptor>> monthCells = cells.get(epochMonth);
+      if (monthCells == null) {
+        continue;
+      }
+      for (int i = 0; i < monthCells.size(); i++) {
+        List<MonthCellDescriptor> week = monthCells.get(i);
+        for (int j = 0; j < week.size(); j++) {
+          MonthCellDescriptor cell = week.get(j);
+          if (cell.getDay() >= start && cell.getDay() <= end) {
+            cell.setRangeState(
+                getRangeState(cell.getDay(), cell.isSelectable(), selectionMode, selectedDays));
+          }
+        }
+      }
+    }
+    daysChanged(start, end);
+  }
+
+  private void clearOldSelections() {
+    for (MonthCellDescriptor selectedCell : selectedCells) {
+      // De-select the currently-selected cell.
+      selectedCell.setSelected(false);
+      daysChanged(selectedCell.getDay(), selectedCell.getDay());
+    }
+    selectedCells.clear();
+    selectedDays.clear();
+  }
+
+  /** Un-selects {@code day} if it is selected, and returns whether it was. */
+  private boolean applyMultiUnselect(int day) {
+    if (!selectedDays.remove(day)) {
+      return false;
+    }
+    daysChanged(day, day);
+    for (MonthCellDescriptor selectedCell : selectedCells) {
+      if (selectedCell.getDay() == day) {
+        // De-select the currently-selected cell.
+        selectedCell.setSelected(false);
+        selectedCells.remove(selectedCell);
+        break;
+      }
+    }
+    return true;
+  }
+
+  /** Highlights {@code day}, shown by {@code cell}, and returns whether it wasn't already. */
+  boolean highlightDay(int day, MonthCellDescriptor cell) {
+    if (!highlightedDays.add(day)) {
+      return false;
+    }
+    highlightedCells.add(cell);
+    cell.setHighlighted(true);
+    daysChanged(day, day);
+    return true;
+  }
+
+  /** Returns the selected dates, with the selectable days in between the ends of a range. */
+  List<Date> getSelectedDates() {
+    List<Date> selectedDates = new ArrayList<Date>();
+    if (selectionMode == SelectionMode.RANGE && selectedDays.size() > 1) {
+      // Only the ends of a range are stored: expand it to the selectable days in between.
+      int start = selectedDays.first();
+      int end = selectedDays.last();
+      for (int day = start; day <= end; day++) {
+        if (day == start || day == end || isDateSelectable(day)) {
+          selectedDates.add(CalendarDays.toDate(day, timeZone));
+        }
+      }
+    } else {
+      for (int i = 0; i < selectedDays.size(); i++) {
+        selectedDates.add(CalendarDays.toDate(selectedDays.get(i), timeZone));
+      }
+    }
+    return selectedDates;
+  }
+
+  private void daysChanged(int firstDay, int lastDay) {
+    if (listener != null) {
+      listener.onDaysChanged(firstDay, lastDay);
+    }
+  }
+
+  /**
+   * Returns the cell of {@code day} in {@code monthCells}, or null if the grid doesn't show it.
+   * The grid is a run of consecutive days, so the row and column follow from the first cell.
+   */
+  static MonthCellDescriptor getCell(List<List<MonthCellDescriptor>> monthCells, int day) {
+    int offset = day - monthCells.get(0).get(0).getDay();
+    if (offset < 0 || offset >= monthCells.size() * 7) {
+      return null;
+    }
+    return monthCells.get(offset / 7).get(offset % 7);
+  }
+
+  /**
+   * Returns where a cell of {@code day} lies in the selected range.  In {@link
+   * SelectionMode#RANGE} only the first and last day are stored in {@code selectedDays}: the
+   * selectable days in between are resolved here instead of being selected one by one.
+   */
+  static RangeState getRangeState(int day, boolean isSelectable, SelectionMode selectionMode,
+      DaySet selectedDays) {
+    if (!isSelectable || selectionMode != SelectionMode.RANGE || selectedDays.size() < 2) {
+      return RangeState.NONE;
+    }
+    int start = selectedDays.first();
+    int end = selectedDays.last();
+    if (day == start) {
+      return RangeState.FIRST;
+    } else if (day == end) {
+      return RangeState.LAST;
+    } else if (day > start && day < end) {
+      return RangeState.MIDDLE;
+    }
+    return RangeState.NONE;
+  }
+
+  /** Returns whether {@code day} is within [{@code minDay}, {@code maxDay}). */
+  static boolean betweenDates(int day, int minDay, int maxDay) {
+    return day >= minDay && day < maxDay;
+  }
+}
@@ -2,34 +2,34 @@
 package com.squareup.timessquare;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.util.AttributeSet;
+import android.view.KeyEvent;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 import android.widget.ListView;
 import android.widget.Toast;
-import com.squareup.timessquare.MonthCellDescriptor.RangeState;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
-import static java.util.Calendar.DATE;
-import static java.util.Calendar.DAY_OF_MONTH;
-import static java.util.Calendar.DAY_OF_WEEK;
-import static java.util.Calendar.HOUR_OF_DAY;
-import static java.util.Calendar.MILLISECOND;
-import static java.util.Calendar.MINUTE;
-import static java.util.Calendar.MONTH;
-import static java.util.Calendar.SECOND;
-import static java.util.Calendar.YEAR;
+import static com.squareup.timessquare.CalendarModel.betweenDates;
+import static com.squareup.timessquare.CalendarModel.getCell;
 
 /**
  * Android component to allow picking a date from a calendar view (a list of months).  Must be
@@ -56,28 +56,114 @@ public class CalendarPickerView extends ListView {
     RANGE
   }
 
+  /**
+   * How many months worth of cells are kept around.  A month's cells are only built when it is
+   * first displayed or selected into, and the least recently used ones are dropped beyond this.
+   */
+  private static final int MONTH_CACHE_SIZE = 12;
+
+  /** How many months around the initial one are filtered ahead of time in infinite mode. */
+  private static final int INFINITE_SELECTABLE_WINDOW = 48;
+
+  /**
+   * The years shown by {@link #initInfinite(Locale)}.  {@link Calendar} switches to the Julian
+   * calendar before 1582, so earlier months wouldn't line up with their dates.
+   */
+  private static final int INFINITE_FIRST_YEAR = 1600;
+  private static final int INFINITE_LAST_YEAR = 9999;
+
+  /** Runs the date selectable filter of pickers with {@link #setAsyncInit asynchronous init}. */
+  private static ExecutorService filterExecutor;
+
   private final CalendarPickerView.MonthAdapter adapter;
-  private final List<List<List<MonthCellDescriptor>>> cells =
-      new ArrayList<List<List<MonthCellDescriptor>>>();
+  /** The selection and cells of the months, by epoch month. */
+  final CalendarModel model = new CalendarModel(MONTH_CACHE_SIZE, new CalendarModel.Listener() {
+    @Override public void onDaysChanged(int firstDay, int lastDay) {
+      invalidateDays(firstDay, lastDay);
+    }
+  });
   final MonthView.Listener listener = new CellClickedListener();
   final List<MonthDescriptor> months = new ArrayList<MonthDescriptor>();
-  final List<MonthCellDescriptor> selectedCells = new ArrayList<MonthCellDescriptor>();
-  final List<MonthCellDescriptor> highlightedCells = new ArrayList<MonthCellDescriptor>();
-  final List<Calendar> selectedCals = new ArrayList<Calendar>();
-  final List<Calendar> highlightedCals = new ArrayList<Calendar>();
   private Locale locale;
-  private DateFormat monthNameFormat;
-  private DateFormat weekdayNameFormat;
-  private DateFormat fullDateFormat;
-  private Calendar minCal;
-  private Calendar maxCal;
-  private Calendar monthCounter;
+  private CalendarFormats formats;
+  private TimeZone timeZone;
+  /** First selectable day, see {@link CalendarDays}. */
+  private int minDay;
+  /** Day after the last selectable day. */
+  private int maxDay;
   private boolean displayOnly;
-  SelectionMode selectionMode;
+  private boolean flatMonthViews;
+  private MonthViewPool monthViewPool;
+  private boolean attachedToWindow;
+  /** How many month views {@link #setPrewarmMonthViews(int)} creates ahead of time. */
+  private int prewarmCount;
+  private boolean prewarming;
+  /** Views created in idle time, and the month each was bound to. */
+  private final List<View> prewarmedViews = new ArrayList<View>();
+  private final List<Integer> prewarmedPositions = new ArrayList<Integer>();
+  private final MessageQueue.IdleHandler prewarmIdleHandler = new MessageQueue.IdleHandler() {
+    @Override public boolean queueIdle() {
+      if (prewarming) {
+        if (prewarmNext()) {
+          // Idle handlers only run again once the queue has had a message: post one.
+          post(requeuePrewarm);
+        } else {
+          prewarming = false;
+        }
+      }
+      return false;
+    }
+  };
+  private final Runnable requeuePrewarm = new Runnable() {
+    @Override public void run() {
+      if (prewarming) {
+        addPrewarmIdleHandler();
+      }
+    }
+  };
+  /** Whether months are created as they're shown instead of being listed in {@link #months}. */
+  private boolean infinite;
+  /** Epoch month at position 0, see {@link CalendarDays#epochMonth(int)}. */
+  private int firstMonth;
+  private int monthCount;
+  /** The months created last in infinite mode, each in slot {@code position % length}. */
+  private final MonthDescriptor[] monthWindow = new MonthDescriptor[MONTH_CACHE_SIZE];
+  /** Span of {@link #months} whose cells changed since the attached month views were bound. */
+  private int firstDirtyMonth = Integer.MAX_VALUE;
+  private int lastDirtyMonth = -1;
+  private boolean asyncInit;
+  /** Incremented by each init(), so that work started for an older one can tell it's stale. */
+  private volatile int initGeneration;
+  private Future<?> filterTask;
+  /**
+   * Takes the filter task's results to the main thread.  Unlike {@link #post(Runnable)}, it
+   * delivers them before the picker is attached: from a thread without a looper, older versions
+   * of View queue them on that thread, where they never run.
+   */
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  /** Months within {@code filterDistance} of {@code filterCenter} are filtered by the task. */
+  private int filterCenter;
+  private int filterDistance;
+  /** Nesting depth of {@link #beginBatchEdit()}; updates are deferred while it's positive. */
+  private int batchDepth;
+  /** Whether {@link #validateAndUpdate()} was called during the current batch edit. */
+  private boolean batchNeedsFullUpdate;
+  /** Month the pending scroll goes to, or -1 if there's none. */
+  private int pendingScrollIndex = -1;
+  private boolean scrollPosted;
+  private final Runnable scrollToPendingMonth = new Runnable() {
+    @Override public void run() {
+      scrollPosted = false;
+      if (pendingScrollIndex != -1) {
+        Logr.d("Scrolling to position %d", pendingScrollIndex);
+        setSelection(pendingScrollIndex);
+        pendingScrollIndex = -1;
+      }
+    }
+  };
   Calendar today;
 
   private OnDateSelectedListener dateListener;
-  private DateSelectableFilter dateConfiguredListener;
   private OnInvalidDateSelectedListener invalidDateListener =
       new DefaultOnInvalidDateSelectedListener();
 
@@ -91,12 +177,8 @@ public class CalendarPickerView extends ListView {
     setCacheColorHint(bg);
     locale = Locale.getDefault();
     today = Calendar.getInstance(locale);
-    minCal = Calendar.getInstance(locale);
-    maxCal = Calendar.getInstance(locale);
-    monthCounter = Calendar.getInstance(locale);
-    monthNameFormat = new SimpleDateFormat(context.getString(R.string.month_name_format), locale);
-    weekdayNameFormat = new SimpleDateFormat(context.getString(R.string.day_name_format), locale);
-    fullDateFormat = DateFormat.getDateInstance(DateFormat.MEDIUM, locale);
+    timeZone = today.getTimeZone();
+    formats = CalendarFormats.get(context, locale, today.getFirstDayOfWeek());
 
     if (isInEditMode()) {
       Calendar nextYear = Calendar.getInstance(locale);
@@ -141,61 +223,121 @@ public class CalendarPickerView extends ListView {
       throw new IllegalArgumentException("Locale is null.");
     }
 
+    setLocale(locale);
+    return initMonths(CalendarDays.fromDate(minDate, timeZone),
+        CalendarDays.fromDate(maxDate, timeZone), false);
+  }
+
+  /**
+   * Initializes the picker without a date range: months are created as they're scrolled to, in
+   * either direction, and only the ones around the displayed months are kept.  The picker starts
+   * on today's month, or on the selected date if one is set with the returned {@link
+   * FluentInitializer}.
+   * <p>
+   * Like {@link #init(Date, Date, Locale)}, this sets the {@link SelectionMode} to {@link
+   * SelectionMode#SINGLE}.
+   */
+  public FluentInitializer initInfinite(Locale locale) {
+    if (locale == null) {
+      throw new IllegalArgumentException("Locale is null.");
+    }
+    setLocale(locale);
+    FluentInitializer initializer =
+        initMonths(CalendarDays.of(INFINITE_FIRST_YEAR, Calendar.JANUARY, 1),
+            CalendarDays.of(INFINITE_LAST_YEAR + 1, Calendar.JANUARY, 1), true);
+    scrollToSelectedDates();
+    return initializer;
+  }
+
+  /** Like {@link #initInfinite(Locale)} with the default locale. */
+  public FluentInitializer initInfinite() {
+    return initInfinite(Locale.getDefault());
+  }
+
+  private void setLocale(Locale locale) {
     // Make sure that all calendar instances use the same locale.
     this.locale = locale;
     today = Calendar.getInstance(locale);
-    minCal = Calendar.getInstance(locale);
-    maxCal = Calendar.getInstance(locale);
-    monthCounter = Calendar.getInstance(locale);
-    monthNameFormat =
-        new SimpleDateFormat(getContext().getString(R.string.month_name_format), locale);
+    timeZone = today.getTimeZone();
+    formats = CalendarFormats.get(getContext(), locale, today.getFirstDayOfWeek());
     for (MonthDescriptor month : months) {
-      month.setLabel(monthNameFormat.format(month.getDate()));
+      month.setLabel(formats.monthLabel(month.getFirstDay()));
     }
-    weekdayNameFormat =
-        new SimpleDateFormat(getContext().getString(R.string.day_name_format), locale);
-    fullDateFormat = DateFormat.getDateInstance(DateFormat.MEDIUM, locale);
-
-    this.selectionMode = SelectionMode.SINGLE;
-    // Clear out any previously-selected dates/cells.
-    selectedCals.clear();
-    selectedCells.clear();
-    highlightedCells.clear();
+  }
 
+  private FluentInitializer initMonths(int minDay, int maxDay, boolean infinite) {
+    long start = CalendarMetrics.start();
     // Clear previous state.
-    cells.clear();
+    cancelFilterTask();
     months.clear();
-    minCal.setTime(minDate);
-    maxCal.setTime(maxDate);
-    setMidnight(minCal);
-    setMidnight(maxCal);
+    Arrays.fill(monthWindow, null);
+    this.minDay = minDay;
+    this.maxDay = maxDay;
+    this.infinite = infinite;
     displayOnly = false;
 
-    // maxDate is exclusive: bump back to the previous day so if maxDate is the first of a month,
-    // we don't accidentally include that month in the view.
-    maxCal.add(MINUTE, -1);
-
-    // Now iterate between minCal and maxCal and build up our list of months to show.
-    monthCounter.setTime(minCal.getTime());
-    final int maxMonth = maxCal.get(MONTH);
-    final int maxYear = maxCal.get(YEAR);
-    while ((monthCounter.get(MONTH) <= maxMonth // Up to, including the month.
-        || monthCounter.get(YEAR) < maxYear) // Up to the year.
-        && monthCounter.get(YEAR) < maxYear + 1) { // But not > next yr.
-      Date date = monthCounter.getTime();
-      MonthDescriptor month =
-          new MonthDescriptor(monthCounter.get(MONTH), monthCounter.get(YEAR), date,
-              monthNameFormat.format(date));
-      cells.add(getMonthCells(month, monthCounter));
-      Logr.d("Adding month %s", month);
-      months.add(month);
-      monthCounter.add(MONTH, 1);
+    // Months are numbered from minDay's.  maxDay is exclusive, so if it is the first of a month we
+    // don't include that month in the view.  The cells of each month are built lazily, see
+    // getMonthCells(int), and in infinite mode so are the months themselves, see getMonth(int).
+    firstMonth = CalendarDays.epochMonth(minDay);
+    monthCount = CalendarDays.epochMonth(maxDay - 1) - firstMonth + 1;
+    if (!infinite) {
+      for (int i = 0; i < monthCount; i++) {
+        months.add(createMonth(firstMonth + i));
+      }
+    }
+    // Clear out any previously-selected dates/cells.
+    model.reset(today, timeZone, minDay, maxDay,
+        infinite ? INFINITE_SELECTABLE_WINDOW : monthCount);
+    if (asyncInit && model.getFilter() != null) {
+      // Wait for the FluentInitializer calls so that the selected month is known.
+      final int generation = initGeneration;
+      post(new Runnable() {
+        @Override public void run() {
+          if (generation == initGeneration) {
+            startFilterTask();
+          }
+        }
+      });
     }
 
+    prewarmedViews.clear();
+    prewarmedPositions.clear();
+    startPrewarm();
+
     validateAndUpdate();
+    CalendarMetrics.end(CalendarMetrics.Event.INIT, start, monthCount);
     return new FluentInitializer();
   }
 
+  private MonthDescriptor createMonth(int epochMonth) {
+    int firstDay = CalendarDays.firstDayOfEpochMonth(epochMonth);
+    Date date = CalendarDays.toDate(firstDay, timeZone);
+    return new MonthDescriptor(CalendarDays.month(firstDay), CalendarDays.year(firstDay), date,
+        formats.monthLabel(firstDay));
+  }
+
+  /** Returns the month at {@code position}, creating it in infinite mode. */
+  MonthDescriptor getMonth(int position) {
+    if (!infinite) {
+      return months.get(position);
+    }
+    int epochMonth = firstMonth + position;
+    int slot = position % monthWindow.length;
+    MonthDescriptor month = monthWindow[slot];
+    if (month == null
+        || CalendarDays.epochMonth(month.getYear(), month.getMonth()) != epochMonth) {
+      month = createMonth(epochMonth);
+      monthWindow[slot] = month;
+    }
+    return month;
+  }
+
+  /** Returns how many months are shown: one per position of the list. */
+  int getMonthCount() {
+    return monthCount;
+  }
+
   /**
    * Both date parameters must be non-null and their {@link Date#getTime()} must not return 0. Time
    * of day will be ignored.  For instance, if you pass in {@code minDate} as 11/16/2012 5:15pm and
@@ -220,7 +362,7 @@ public class CalendarPickerView extends ListView {
   public class FluentInitializer {
     /** Override the {@link SelectionMode} from the default ({@link SelectionMode#SINGLE}). */
     public FluentInitializer inMode(SelectionMode mode) {
-      selectionMode = mode;
+      model.setSelectionMode(mode);
       validateAndUpdate();
       return this;
     }
@@ -238,17 +380,20 @@ public class CalendarPickerView extends ListView {
      * pass in multiple dates and haven't already called {@link #inMode(SelectionMode)}.
      */
     public FluentInitializer withSelectedDates(Collection<Date> selectedDates) {
-      if (selectionMode == SelectionMode.SINGLE && selectedDates.size() > 1) {
+      if (model.getSelectionMode() == SelectionMode.SINGLE && selectedDates.size() > 1) {
         throw new IllegalArgumentException("SINGLE mode can't be used with multiple selectedDates");
       }
-      if (selectedDates != null) {
-        for (Date date : selectedDates) {
-          selectDate(date);
+      beginBatchEdit();
+      try {
+        if (selectedDates != null) {
+          for (Date date : selectedDates) {
+            selectDate(date);
+          }
         }
+        scrollToSelectedDates();
+      } finally {
+        endBatchEdit();
       }
-      scrollToSelectedDates();
-
-      validateAndUpdate();
       return this;
     }
 
@@ -267,46 +412,394 @@ public class CalendarPickerView extends ListView {
     }
   }
 
+  /**
+   * Starts a batch of edits: until the matching {@link #endBatchEdit()}, calls like
+   * {@link #selectDate(Date)} and {@link #highlightDates(Collection)} only update the picker's
+   * state.  The month views are then rebound once, and the picker scrolls at most once, to the
+   * month the last of the edits would have scrolled to.  Batches may be nested.
+   */
+  public void beginBatchEdit() {
+    batchDepth++;
+  }
+
+  /** Ends a batch of edits started by {@link #beginBatchEdit()} and applies them. */
+  public void endBatchEdit() {
+    if (batchDepth == 0) {
+      throw new IllegalStateException("endBatchEdit() without beginBatchEdit()");
+    }
+    if (--batchDepth > 0) {
+      return;
+    }
+    if (batchNeedsFullUpdate) {
+      batchNeedsFullUpdate = false;
+      firstDirtyMonth = Integer.MAX_VALUE;
+      lastDirtyMonth = -1;
+      validateAndUpdate();
+    } else {
+      updateDirtyMonths();
+    }
+    if (pendingScrollIndex != -1 && !scrollPosted) {
+      scrollPosted = true;
+      post(scrollToPendingMonth);
+    }
+  }
+
   private void validateAndUpdate() {
+    if (batchDepth > 0) {
+      batchNeedsFullUpdate = true;
+      return;
+    }
     if (getAdapter() == null) {
       setAdapter(adapter);
     }
     adapter.notifyDataSetChanged();
   }
 
-  private void scrollToSelectedMonth(final int selectedIndex) {
-    post(new Runnable() {
-      @Override
-      public void run() {
-        Logr.d("Scrolling to position %d", selectedIndex);
-        setSelection(selectedIndex);
+  /** Records that the cells from {@code firstDay} to {@code lastDay} changed state. */
+  private void invalidateDays(int firstDay, int lastDay) {
+    firstDirtyMonth = Math.min(firstDirtyMonth, monthIndexOf(firstDay));
+    lastDirtyMonth = Math.max(lastDirtyMonth, monthIndexOf(lastDay));
+  }
+
+  /**
+   * Rebinds the attached month views that show a month invalidated by {@link #invalidateDays}.
+   * Unlike {@link #validateAndUpdate()} this leaves the other visible months alone; months that
+   * aren't attached are bound with their current cells when they're scrolled back in.
+   */
+  private void updateDirtyMonths() {
+    if (batchDepth > 0) {
+      return;
+    }
+    if (getAdapter() == null) {
+      validateAndUpdate();
+    } else {
+      final int firstPosition = getFirstVisiblePosition();
+      for (int i = 0, count = getChildCount(); i < count; i++) {
+        int position = firstPosition + i;
+        View child = getChildAt(i);
+        if (position >= firstDirtyMonth && position <= lastDirtyMonth
+            && isMonthReady(position)) {
+          bindMonth(child, position);
+        }
       }
-    });
+    }
+    firstDirtyMonth = Integer.MAX_VALUE;
+    lastDirtyMonth = -1;
+  }
+
+  /** Scrolls to {@code selectedIndex}, replacing any scroll that hasn't happened yet. */
+  private void scrollToSelectedMonth(int selectedIndex) {
+    pendingScrollIndex = selectedIndex;
+    if (batchDepth == 0 && !scrollPosted) {
+      scrollPosted = true;
+      post(scrollToPendingMonth);
+    }
   }
 
   private void scrollToSelectedDates() {
-    Integer selectedIndex = null;
-    Integer todayIndex = null;
-    Calendar today = Calendar.getInstance(locale);
-    for (int c = 0; c < months.size(); c++) {
-      MonthDescriptor month = months.get(c);
-      if (selectedIndex == null) {
-        for (Calendar selectedCal : selectedCals) {
-          if (sameMonth(selectedCal, month)) {
-            selectedIndex = c;
-            break;
+    int index = getInitialMonthIndex();
+    if (index != -1) {
+      scrollToSelectedMonth(index);
+    }
+  }
+
+  /** Returns the month of the earliest selected date, else today's month or -1 if not shown. */
+  private int getInitialMonthIndex() {
+    if (!model.selectedDays.isEmpty()) {
+      return monthIndexOf(model.selectedDays.first());
+    }
+    int todayIndex = monthIndexOf(CalendarDays.fromMillis(System.currentTimeMillis(), timeZone));
+    return todayIndex >= 0 && todayIndex < monthCount ? todayIndex : -1;
+  }
+
+  /**
+   * Builds the initial month right away and runs the date selectable filter for the others on a
+   * background thread, nearest months first.  Months are shown as placeholders until their days
+   * have been filtered.
+   */
+  private void startFilterTask() {
+    final int center = Math.max(getInitialMonthIndex(), 0);
+    getMonthCells(center);
+
+    final int generation = initGeneration;
+    final SelectableDays selectable = model.getSelectableDays();
+    final DateSelectableFilter filter = model.getFilter();
+    final int filterMinDay = minDay;
+    final int filterMaxDay = maxDay;
+    final TimeZone filterTimeZone = timeZone;
+    final int filterFirstMonth = firstMonth;
+    final int count = monthCount;
+    // In infinite mode only the months that fit in the memo are filtered ahead of time.
+    filterCenter = center;
+    filterDistance = infinite ? selectable.capacity() / 2 : count;
+    final int distances = filterDistance;
+    filterTask = getFilterExecutor().submit(new Runnable() {
+      @Override public void run() {
+        for (int distance = 1; distance < distances; distance++) {
+          filterMonth(center - distance);
+          filterMonth(center + distance);
+        }
+        mainHandler.post(new Runnable() {
+          @Override public void run() {
+            if (generation == initGeneration) {
+              // Months that were shown and then evicted while the task ran may still be
+              // placeholders: from now on they're built as they're shown.
+              filterTask = null;
+              firstDirtyMonth = getFirstVisiblePosition();
+              lastDirtyMonth = getLastVisiblePosition();
+              updateDirtyMonths();
+            }
           }
+        });
+      }
+
+      private void filterMonth(int index) {
+        if (index < 0 || index >= count || generation != initGeneration
+            || selectable.isKnown(filterFirstMonth + index)) {
+          return;
         }
-        if (selectedIndex == null && todayIndex == null && sameMonth(today, month)) {
-          todayIndex = c;
+        final int firstDay = CalendarDays.firstDayOfEpochMonth(filterFirstMonth + index);
+        selectable.put(filterFirstMonth + index, CalendarModel.computeSelectableMask(firstDay,
+            filter, filterMinDay, filterMaxDay, filterTimeZone));
+        mainHandler.post(new Runnable() {
+          @Override public void run() {
+            if (generation == initGeneration) {
+              invalidateDays(firstDay, firstDay);
+              updateDirtyMonths();
+            }
+          }
+        });
+      }
+    });
+  }
+
+  private void cancelFilterTask() {
+    initGeneration++;
+    if (filterTask != null) {
+      filterTask.cancel(false);
+      filterTask = null;
+    }
+  }
+
+  /**
+   * Returns the low priority thread that runs date selectable filters, shared by every calendar
+   * view of the process.
+   */
+  static synchronized ExecutorService getFilterExecutor() {
+    if (filterExecutor == null) {
+      filterExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "CalendarPickerView-filter");
+          thread.setDaemon(true);
+          thread.setPriority(Thread.MIN_PRIORITY);
+          return thread;
         }
+      });
+    }
+    return filterExecutor;
+  }
+
+  /**
+   * Whether {@link #init(Date, Date)} runs the {@link DateSelectableFilter} on a background thread.
+   * The month of the selected date (or today) is built right away, the others are filtered in
+   * order of their distance to it and shown as placeholders until then.  The filter must be safe
+   * to call from another thread.  Calling init() again cancels any filtering that is still going.
+   */
+  public void setAsyncInit(boolean asyncInit) {
+    this.asyncInit = asyncInit;
+  }
+
+  @Override protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    attachedToWindow = true;
+    if (monthViewPool != null) {
+      monthViewPool.register(this);
+    }
+  }
+
+  @Override protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+    attachedToWindow = false;
+    if (filterTask != null) {
+      cancelFilterTask();
+    }
+    stopPrewarm();
+    if (monthViewPool != null) {
+      monthViewPool.unregister(this);
+      releaseMonthViews();
+    }
+  }
+
+  /**
+   * Creates up to {@code count} month views while the main thread is idle after {@link
+   * #init(Date, Date)}, and binds them to the months next to the visible ones, so that the first
+   * scroll doesn't have to inflate views or build cells.  Prewarming stops as soon as the picker
+   * gets input.  0, the default, disables it.
+   */
+  public void setPrewarmMonthViews(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("count must not be negative: " + count);
+    }
+    prewarmCount = count;
+    if (count == 0) {
+      stopPrewarm();
+    } else if (monthCount > 0) {
+      startPrewarm();
+    }
+  }
+
+  private void startPrewarm() {
+    if (prewarmCount > 0 && !prewarming) {
+      prewarming = true;
+      addPrewarmIdleHandler();
+    }
+  }
+
+  private void addPrewarmIdleHandler() {
+    MessageQueue queue = myQueue();
+    // There's no looper in layout previews, where prewarming is pointless.
+    if (queue != null) {
+      queue.addIdleHandler(prewarmIdleHandler);
+    }
+  }
+
+  private void stopPrewarm() {
+    if (prewarming) {
+      prewarming = false;
+      MessageQueue queue = myQueue();
+      if (queue != null) {
+        queue.removeIdleHandler(prewarmIdleHandler);
+      }
+      removeCallbacks(requeuePrewarm);
+    }
+  }
+
+  /**
+   * Returns the queue of this thread's looper, or null if the thread has none.  {@link
+   * Looper#myQueue()} throws a NullPointerException on such a thread instead of returning null.
+   */
+  private static MessageQueue myQueue() {
+    return Looper.myLooper() != null ? Looper.myQueue() : null;
+  }
+
+  /** Creates and binds one more prewarmed view, and returns whether there's more to do. */
+  boolean prewarmNext() {
+    if (!prewarming || prewarmedViews.size() >= prewarmCount) {
+      return false;
+    }
+    int position = nextPrewarmPosition();
+    if (position == -1) {
+      return false;
+    }
+    View monthView = adapter.newMonthView(this);
+    adapter.bindView(monthView, position);
+    prewarmedViews.add(monthView);
+    prewarmedPositions.add(position);
+    return prewarmedViews.size() < prewarmCount;
+  }
+
+  /** Returns the nearest month to the visible ones that has no view yet, or -1. */
+  private int nextPrewarmPosition() {
+    int first;
+    int last;
+    int distance;
+    if (getChildCount() > 0) {
+      first = getFirstVisiblePosition();
+      last = getLastVisiblePosition();
+      distance = 1;
+    } else {
+      // Not laid out yet: start with the month that will be shown.
+      first = pendingScrollIndex != -1 ? pendingScrollIndex : Math.max(getInitialMonthIndex(), 0);
+      last = first;
+      distance = 0;
+    }
+    for (; last + distance < monthCount || first - distance >= 0; distance++) {
+      int after = last + distance;
+      if (after < monthCount && !prewarmedPositions.contains(after)) {
+        return after;
+      }
+      int before = first - distance;
+      if (before >= 0 && !prewarmedPositions.contains(before)) {
+        return before;
       }
     }
-    if (selectedIndex != null) {
-      scrollToSelectedMonth(selectedIndex);
-    } else if (todayIndex != null) {
-      scrollToSelectedMonth(todayIndex);
+    return -1;
+  }
+
+  /**
+   * Gives a prewarmed view created with {@code formats} to another picker of the {@link
+   * MonthViewPool}, or returns null if there's none.  The farthest month goes first, and prewarming
+   * stops: the idle time now goes to the other picker.
+   */
+  View releasePrewarmedView(CalendarFormats formats, boolean flat) {
+    if (prewarmedViews.isEmpty() || flatMonthViews != flat || this.formats != formats) {
+      return null;
+    }
+    stopPrewarm();
+    int index = prewarmedViews.size() - 1;
+    prewarmedPositions.remove(index);
+    View monthView = prewarmedViews.remove(index);
+    if (monthView instanceof FlatMonthView) {
+      ((FlatMonthView) monthView).setListener(null);
+    } else {
+      ((MonthView) monthView).setListener(null);
+    }
+    return monthView;
+  }
+
+  /** Returns a prewarmed view, preferably the one bound to {@code position}, or null. */
+  private View takePrewarmedView(int position) {
+    if (prewarmedViews.isEmpty()) {
+      return null;
+    }
+    int index = prewarmedPositions.indexOf(position);
+    if (index == -1) {
+      index = prewarmedViews.size() - 1;
+    }
+    prewarmedPositions.remove(index);
+    return prewarmedViews.remove(index);
+  }
+
+  @Override public boolean dispatchTouchEvent(MotionEvent event) {
+    stopPrewarm();
+    return super.dispatchTouchEvent(event);
+  }
+
+  @Override public boolean dispatchKeyEvent(KeyEvent event) {
+    stopPrewarm();
+    return super.dispatchKeyEvent(event);
+  }
+
+  /**
+   * Shares month views with the other pickers that use {@code pool}: they're taken from the pool
+   * before inflating new ones, and returned to it when this picker is detached from its window.
+   * While this picker is attached, the pool can also hand its prewarmed views that aren't shown
+   * yet to the other pickers.  Null, the default, stops sharing.
+   */
+  public void setMonthViewPool(MonthViewPool pool) {
+    if (monthViewPool != null) {
+      monthViewPool.unregister(this);
+    }
+    monthViewPool = pool;
+    if (pool != null && attachedToWindow) {
+      pool.register(this);
+    }
+  }
+
+  /** Moves the month views to the pool.  They're replaced if this picker is attached again. */
+  private void releaseMonthViews() {
+    for (int i = 0, count = getChildCount(); i < count; i++) {
+      View child = getChildAt(i);
+      if (child instanceof FlatMonthView) {
+        ((FlatMonthView) child).setListener(null);
+        monthViewPool.release(formats, true, child);
+      } else if (child instanceof MonthView) {
+        ((MonthView) child).setListener(null);
+        monthViewPool.release(formats, false, child);
+      }
     }
+    removeAllViewsInLayout();
+    requestLayout();
   }
 
   /**
@@ -341,25 +834,37 @@ public class CalendarPickerView extends ListView {
     requestLayout();
   }
 
+  /**
+   * Whether months are shown by {@link FlatMonthView}s, which draw a whole month in a single view,
+   * instead of the default {@link MonthView}s with a view per day.
+   */
+  public void setFlatMonthViews(boolean flatMonthViews) {
+    if (this.flatMonthViews != flatMonthViews) {
+      this.flatMonthViews = flatMonthViews;
+      prewarmedViews.clear();
+      prewarmedPositions.clear();
+      if (getAdapter() != null) {
+        adapter.notifyDataSetChanged();
+      }
+    }
+  }
+
   @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-    if (months.isEmpty()) {
+    if (monthCount == 0) {
       throw new IllegalStateException(
           "Must have at least one month to display.  Did you forget to call init()?");
     }
     super.onMeasure(widthMeasureSpec, heightMeasureSpec);
   }
 
+  /** Returns the earliest selected date, or null if nothing is selected. */
   public Date getSelectedDate() {
-    return (selectedCals.size() > 0 ? selectedCals.get(0).getTime() : null);
+    DaySet selectedDays = model.selectedDays;
+    return selectedDays.isEmpty() ? null : CalendarDays.toDate(selectedDays.first(), timeZone);
   }
 
   public List<Date> getSelectedDates() {
-    List<Date> selectedDates = new ArrayList<Date>();
-    for (MonthCellDescriptor cal : selectedCells) {
-      selectedDates.add(cal.getDate());
-    }
-    Collections.sort(selectedDates);
-    return selectedDates;
+    return model.getSelectedDates();
   }
 
   /** Returns a string summarizing what the client sent us for init() params. */
@@ -367,30 +872,22 @@ public class CalendarPickerView extends ListView {
     return "minDate: " + minDate + "\nmaxDate: " + maxDate;
   }
 
-  /** Clears out the hours/minutes/seconds/millis of a Calendar. */
-  static void setMidnight(Calendar cal) {
-    cal.set(HOUR_OF_DAY, 0);
-    cal.set(MINUTE, 0);
-    cal.set(SECOND, 0);
-    cal.set(MILLISECOND, 0);
-  }
-
   private class CellClickedListener implements MonthView.Listener {
     @Override public void handleClick(MonthCellDescriptor cell) {
-      Date clickedDate = cell.getDate();
+      int clickedDay = cell.getDay();
 
-      if (!betweenDates(clickedDate, minCal, maxCal) || !isDateSelectable(clickedDate)) {
+      if (!model.isDateSelectable(clickedDay)) {
         if (invalidDateListener != null) {
-          invalidDateListener.onInvalidDateSelected(clickedDate);
+          invalidDateListener.onInvalidDateSelected(cell.getDate());
         }
       } else {
-        boolean wasSelected = doSelectDate(clickedDate, cell);
+        boolean wasSelected = doSelectDate(clickedDay, cell);
 
         if (dateListener != null) {
           if (wasSelected) {
-            dateListener.onDateSelected(clickedDate);
+            dateListener.onDateSelected(cell.getDate());
           } else {
-            dateListener.onDateUnselected(clickedDate);
+            dateListener.onDateUnselected(cell.getDate());
           }
         }
       }
@@ -419,147 +916,53 @@ public class CalendarPickerView extends ListView {
    * @return - whether we were able to set the date
    */
   public boolean selectDate(Date date) {
-    validateDate(date);
+    int day = validateDate(date);
 
-    MonthCellWithMonthIndex monthCellWithMonthIndex = getMonthCellWithIndexByDate(date);
-    if (monthCellWithMonthIndex == null || !isDateSelectable(date)) {
+    MonthCellWithMonthIndex monthCellWithMonthIndex = getMonthCellWithIndexByDate(day);
+    if (monthCellWithMonthIndex == null || !model.isDateSelectable(day)) {
       return false;
     }
-    boolean wasSelected = doSelectDate(date, monthCellWithMonthIndex.cell);
+    boolean wasSelected = doSelectDate(day, monthCellWithMonthIndex.cell);
     if (wasSelected) {
       scrollToSelectedMonth(monthCellWithMonthIndex.monthIndex);
     }
     return wasSelected;
   }
 
-  private void validateDate(Date date) {
+  /** Checks that {@code date} can be selected and returns its day. */
+  private int validateDate(Date date) {
     if (date == null) {
       throw new IllegalArgumentException("Selected date must be non-null.");
     }
     if (date.getTime() == 0) {
       throw new IllegalArgumentException("Selected date must be non-zero.  " + date);
     }
-    if (date.before(minCal.getTime()) || date.after(maxCal.getTime())) {
+    int day = CalendarDays.fromDate(date, timeZone);
+    if (!betweenDates(day, minDay, maxDay)) {
       throw new IllegalArgumentException(
           "selectedDate must be between minDate and maxDate.  " + date);
     }
+    return day;
   }
 
-  private boolean doSelectDate(Date date, MonthCellDescriptor cell) {
-    Calendar newlySelectedCal = Calendar.getInstance(locale);
-    newlySelectedCal.setTime(date);
-    // Sanitize input: clear out the hours/minutes/seconds/millis.
-    setMidnight(newlySelectedCal);
-
-    // Clear any remaining range state.
-    for (MonthCellDescriptor selectedCell : selectedCells) {
-      selectedCell.setRangeState(RangeState.NONE);
-    }
-
-    switch (selectionMode) {
-      case RANGE:
-        if (selectedCals.size() > 1) {
-          // We've already got a range selected: clear the old one.
-          clearOldSelections();
-        } else if (selectedCals.size() == 1 && newlySelectedCal.before(selectedCals.get(0))) {
-          // We're moving the start of the range back in time: clear the old start date.
-          clearOldSelections();
-        }
-        break;
-
-      case MULTIPLE:
-        date = applyMultiSelect(date, newlySelectedCal);
-        break;
-
-      case SINGLE:
-        clearOldSelections();
-        break;
-      default:
-        throw new IllegalStateException("Unknown selectionMode " + selectionMode);
-    }
-
-    if (date != null) {
-      // Select a new cell.
-      if (selectedCells.size() == 0 || !selectedCells.get(0).equals(cell)) {
-        selectedCells.add(cell);
-        cell.setSelected(true);
-      }
-      selectedCals.add(newlySelectedCal);
-
-      if (selectionMode == SelectionMode.RANGE && selectedCells.size() > 1) {
-        // Select all days in between start and end.
-        Date start = selectedCells.get(0).getDate();
-        Date end = selectedCells.get(1).getDate();
-        selectedCells.get(0).setRangeState(MonthCellDescriptor.RangeState.FIRST);
-        selectedCells.get(1).setRangeState(MonthCellDescriptor.RangeState.LAST);
-
-        for (List<List<MonthCellDescriptor>> month : cells) {
-          for (List<MonthCellDescriptor> week : month) {
-            for (MonthCellDescriptor singleCell : week) {
-              if (singleCell.getDate().after(start)
-                  && singleCell.getDate().before(end)
-                  && singleCell.isSelectable()) {
-                singleCell.setSelected(true);
-                singleCell.setRangeState(MonthCellDescriptor.RangeState.MIDDLE);
-                selectedCells.add(singleCell);
-              }
-            }
-          }
-        }
-      }
-    }
-
-    // Update the adapter.
-    validateAndUpdate();
-    return date != null;
-  }
-
-  private void clearOldSelections() {
-    for (MonthCellDescriptor selectedCell : selectedCells) {
-      // De-select the currently-selected cell.
-      selectedCell.setSelected(false);
-    }
-    selectedCells.clear();
-    selectedCals.clear();
-  }
-
-  private Date applyMultiSelect(Date date, Calendar selectedCal) {
-    for (MonthCellDescriptor selectedCell : selectedCells) {
-      if (selectedCell.getDate().equals(date)) {
-        // De-select the currently-selected cell.
-        selectedCell.setSelected(false);
-        selectedCells.remove(selectedCell);
-        date = null;
-        break;
-      }
-    }
-    for (Calendar cal : selectedCals) {
-      if (sameDate(cal, selectedCal)) {
-        selectedCals.remove(cal);
-        break;
-      }
-    }
-    return date;
+  private boolean doSelectDate(int day, MonthCellDescriptor cell) {
+    boolean selected = model.selectDay(day, cell);
+    // Rebind the months that changed.
+    updateDirtyMonths();
+    return selected;
   }
 
   public void highlightDates(Collection<Date> dates) {
     for (Date date : dates) {
-      validateDate(date);
+      int day = validateDate(date);
 
-      MonthCellWithMonthIndex monthCellWithMonthIndex = getMonthCellWithIndexByDate(date);
+      MonthCellWithMonthIndex monthCellWithMonthIndex = getMonthCellWithIndexByDate(day);
       if (monthCellWithMonthIndex != null) {
-        Calendar newlyHighlightedCal = Calendar.getInstance();
-        newlyHighlightedCal.setTime(date);
-        MonthCellDescriptor cell = monthCellWithMonthIndex.cell;
-
-        highlightedCells.add(cell);
-        highlightedCals.add(newlyHighlightedCal);
-        cell.setHighlighted(true);
+        model.highlightDay(day, monthCellWithMonthIndex.cell);
       }
     }
 
-    adapter.notifyDataSetChanged();
-    setAdapter(adapter);
+    updateDirtyMonths();
   }
 
   /** Hold a cell with a month-index. */
@@ -573,25 +976,19 @@ public class CalendarPickerView extends ListView {
     }
   }
 
-  /** Return cell and month-index (for scrolling) for a given Date. */
-  private MonthCellWithMonthIndex getMonthCellWithIndexByDate(Date date) {
-    int index = 0;
-    Calendar searchCal = Calendar.getInstance(locale);
-    searchCal.setTime(date);
-    Calendar actCal = Calendar.getInstance(locale);
-
-    for (List<List<MonthCellDescriptor>> monthCells : cells) {
-      for (List<MonthCellDescriptor> weekCells : monthCells) {
-        for (MonthCellDescriptor actCell : weekCells) {
-          actCal.setTime(actCell.getDate());
-          if (sameDate(actCal, searchCal) && actCell.isSelectable()) {
-            return new MonthCellWithMonthIndex(actCell, index);
-          }
-        }
-      }
-      index++;
+  /** Return cell and month-index (for scrolling) for a given day. */
+  private MonthCellWithMonthIndex getMonthCellWithIndexByDate(int day) {
+    int index = monthIndexOf(day);
+    if (index < 0 || index >= monthCount) {
+      return null;
     }
-    return null;
+    MonthCellDescriptor cell = getCell(getMonthCells(index), day);
+    return cell != null && cell.isSelectable() ? new MonthCellWithMonthIndex(cell, index) : null;
+  }
+
+  /** Returns the position of the month containing {@code day}. */
+  private int monthIndexOf(int day) {
+    return CalendarDays.epochMonth(day) - firstMonth;
   }
 
   private class MonthAdapter extends BaseAdapter {
@@ -607,125 +1004,110 @@ public class CalendarPickerView extends ListView {
     }
 
     @Override public int getCount() {
-      return months.size();
+      return monthCount;
     }
 
     @Override public Object getItem(int position) {
-      return months.get(position);
+      return getMonth(position);
     }
 
     @Override public long getItemId(int position) {
       return position;
     }
 
+    @Override public int getViewTypeCount() {
+      return 2;
+    }
+
+    @Override public int getItemViewType(int position) {
+      return flatMonthViews ? 1 : 0;
+    }
+
     @Override public View getView(int position, View convertView, ViewGroup parent) {
-      MonthView monthView = (MonthView) convertView;
+      View monthView = convertView;
       if (monthView == null) {
-        monthView = MonthView.create(parent, inflater, weekdayNameFormat, listener, today);
+        monthView = takePrewarmedView(position);
       }
-      monthView.init(months.get(position), cells.get(position), displayOnly);
+      if (monthView == null) {
+        monthView = newMonthView(parent);
+      }
+      bindView(monthView, position);
       return monthView;
     }
-  }
 
-  List<List<MonthCellDescriptor>> getMonthCells(MonthDescriptor month, Calendar startCal) {
-    Calendar cal = Calendar.getInstance(locale);
-    cal.setTime(startCal.getTime());
-    List<List<MonthCellDescriptor>> cells = new ArrayList<List<MonthCellDescriptor>>();
-    cal.set(DAY_OF_MONTH, 1);
-    int firstDayOfWeek = cal.get(DAY_OF_WEEK);
-    int offset = cal.getFirstDayOfWeek() - firstDayOfWeek;
-    if (offset > 0) {
-      offset -= 7;
-    }
-    cal.add(Calendar.DATE, offset);
-
-    Calendar minSelectedCal = minDate(selectedCals);
-    Calendar maxSelectedCal = maxDate(selectedCals);
-
-    while ((cal.get(MONTH) < month.getMonth() + 1 || cal.get(YEAR) < month.getYear()) //
-        && cal.get(YEAR) <= month.getYear()) {
-      Logr.d("Building week row starting at %s", cal.getTime());
-      List<MonthCellDescriptor> weekCells = new ArrayList<MonthCellDescriptor>();
-      cells.add(weekCells);
-      for (int c = 0; c < 7; c++) {
-        Date date = cal.getTime();
-        boolean isCurrentMonth = cal.get(MONTH) == month.getMonth();
-        boolean isSelected = isCurrentMonth && containsDate(selectedCals, cal);
-        boolean isSelectable =
-            isCurrentMonth && betweenDates(cal, minCal, maxCal) && isDateSelectable(date);
-        boolean isToday = sameDate(cal, today);
-        boolean isHighlighted = containsDate(highlightedCals, cal);
-        int value = cal.get(DAY_OF_MONTH);
-
-        MonthCellDescriptor.RangeState rangeState = MonthCellDescriptor.RangeState.NONE;
-        if (selectedCals.size() > 1) {
-          if (sameDate(minSelectedCal, cal)) {
-            rangeState = MonthCellDescriptor.RangeState.FIRST;
-          } else if (sameDate(maxDate(selectedCals), cal)) {
-            rangeState = MonthCellDescriptor.RangeState.LAST;
-          } else if (betweenDates(cal, minSelectedCal, maxSelectedCal)) {
-            rangeState = MonthCellDescriptor.RangeState.MIDDLE;
-          }
+    /** Returns a month view from the {@link MonthViewPool}, or a new one. */
+    View newMonthView(ViewGroup parent) {
+      View monthView = null;
+      if (monthViewPool != null) {
+        monthView = monthViewPool.acquire(formats, flatMonthViews, CalendarPickerView.this);
+        if (monthView instanceof FlatMonthView) {
+          ((FlatMonthView) monthView).setListener(listener);
+        } else if (monthView != null) {
+          ((MonthView) monthView).setListener(listener);
         }
-
-        weekCells.add(
-            new MonthCellDescriptor(date, isCurrentMonth, isSelectable, isSelected, isToday,
-                isHighlighted, value, rangeState));
-        cal.add(DATE, 1);
       }
-    }
-    return cells;
-  }
-
-  static boolean containsDate(List<Calendar> selectedCals, Calendar cal) {
-    for (Calendar selectedCal : selectedCals) {
-      if (sameDate(cal, selectedCal)) {
-        return true;
+      if (monthView == null) {
+        if (flatMonthViews) {
+          monthView =
+              FlatMonthView.create(getContext(), formats.getWeekdayNames(), listener);
+        } else {
+          monthView = MonthView.create(parent, inflater, formats.getWeekdayNames(), listener);
+        }
       }
+      return monthView;
     }
-    return false;
-  }
 
-  static Calendar minDate(List<Calendar> selectedCals) {
-    if (selectedCals == null || selectedCals.size() == 0) {
-      return null;
+    void bindView(View monthView, int position) {
+      if (isMonthReady(position)) {
+        bindMonth(monthView, position);
+      } else {
+        bindPlaceholder(monthView, position);
+      }
     }
-    Collections.sort(selectedCals);
-    return selectedCals.get(0);
   }
 
-  static Calendar maxDate(List<Calendar> selectedCals) {
-    if (selectedCals == null || selectedCals.size() == 0) {
-      return null;
-    }
-    Collections.sort(selectedCals);
-    return selectedCals.get(selectedCals.size() - 1);
+  /** Whether the month at {@code position} can be shown without running the filter here. */
+  private boolean isMonthReady(int position) {
+    return filterTask == null || Math.abs(position - filterCenter) >= filterDistance
+        || isMonthFiltered(position);
   }
 
-  static boolean sameDate(Calendar cal, Calendar selectedDate) {
-    return cal.get(MONTH) == selectedDate.get(MONTH)
-        && cal.get(YEAR) == selectedDate.get(YEAR)
-        && cal.get(DAY_OF_MONTH) == selectedDate.get(DAY_OF_MONTH);
+  /** Whether the filter has run for the month at {@code position}, or its cells are cached. */
+  boolean isMonthFiltered(int position) {
+    return model.getSelectableDays().isKnown(firstMonth + position)
+        || model.getCachedMonthCells(firstMonth + position) != null;
   }
 
-  static boolean betweenDates(Calendar cal, Calendar minCal, Calendar maxCal) {
-    final Date date = cal.getTime();
-    return betweenDates(date, minCal, maxCal);
+  private void bindPlaceholder(View monthView, int position) {
+    MonthDescriptor month = getMonth(position);
+    int weeks = (CalendarDays.weekOffset(month.getFirstDay(), today.getFirstDayOfWeek())
+        + month.getLength() + 6) / 7;
+    if (monthView instanceof FlatMonthView) {
+      ((FlatMonthView) monthView).initPlaceholder(month, weeks);
+    } else {
+      ((MonthView) monthView).initPlaceholder(month, weeks);
+    }
   }
 
-  static boolean betweenDates(Date date, Calendar minCal, Calendar maxCal) {
-    final Date min = minCal.getTime();
-    return (date.equals(min) || date.after(min)) // >= minCal
-        && (maxCal == null || date.before(maxCal.getTime())); // && < maxCal
+  private void bindMonth(View monthView, int position) {
+    if (monthView instanceof FlatMonthView) {
+      ((FlatMonthView) monthView).init(getMonth(position), getMonthCells(position), displayOnly);
+    } else {
+      ((MonthView) monthView).init(getMonth(position), getMonthCells(position), displayOnly);
+    }
   }
 
-  static boolean sameMonth(Calendar cal, MonthDescriptor month) {
-    return (cal.get(MONTH) == month.getMonth() && cal.get(YEAR) == month.getYear());
+  /**
+   * Returns the cells of the month at {@code monthIndex}, building them if they aren't cached.
+   * Cached cells follow later selection changes.
+   */
+  List<List<MonthCellDescriptor>> getMonthCells(int monthIndex) {
+    return model.getMonthCells(firstMonth + monthIndex);
   }
 
-  private boolean isDateSelectable(Date date) {
-    return dateConfiguredListener == null || dateConfiguredListener.isDateSelectable(date);
+  /** Builds the cells of {@code month} with the current selection, without caching them. */
+  List<List<MonthCellDescriptor>> getMonthCells(MonthDescriptor month) {
+    return model.buildMonthCells(CalendarDays.epochMonth(month.getYear(), month.getMonth()));
   }
 
   public void setOnDateSelectedListener(OnDateSelectedListener listener) {
@@ -743,13 +1125,31 @@ public class CalendarPickerView extends ListView {
 
   /**
    * Set a listener used to discriminate between selectable and unselectable dates. Set this to
-   * disable arbitrary dates as they are rendered.
+   * disable arbitrary dates as they are rendered.  Implement {@link BulkDateSelectableFilter} to
+   * answer for a month at a time.
    * <p>
-   * Important: set this before you call {@link #init(Date, Date)} methods.  If called afterwards,
-   * it will not be consistently applied.
+   * The filter is asked about each date once and its answers are remembered until {@link
+   * #invalidateDateSelectableFilter()} or the next {@link #init(Date, Date)}.  Setting a filter
+   * after init() invalidates the previous answers.
    */
   public void setDateSelectableFilter(DateSelectableFilter listener) {
-    dateConfiguredListener = listener;
+    model.setFilter(listener);
+    if (monthCount > 0) {
+      invalidateDateSelectableFilter();
+    }
+  }
+
+  /**
+   * Forgets which dates the {@link DateSelectableFilter} accepted, e.g. because the data it is
+   * based on changed.  Months are filtered again when they are next shown or selected into.
+   */
+  public void invalidateDateSelectableFilter() {
+    cancelFilterTask();
+    model.invalidateFilter();
+    if (asyncInit && model.getFilter() != null && monthCount > 0) {
+      startFilterTask();
+    }
+    validateAndUpdate();
   }
 
   /**
@@ -786,11 +1186,26 @@ public class CalendarPickerView extends ListView {
     boolean isDateSelectable(Date date);
   }
 
+  /**
+   * A {@link DateSelectableFilter} that can answer for several consecutive dates in one call.  The
+   * picker only calls {@link #getSelectableDates}: one call covers the selectable range of a month.
+   *
+   * @see #setDateSelectableFilter(DateSelectableFilter)
+   */
+  public interface BulkDateSelectableFilter extends DateSelectableFilter {
+    /**
+     * Sets bit {@code i} of {@code selectable} if the date {@code i} days after {@code firstDate}
+     * can be selected, for {@code i} from 0 to {@code dayCount - 1}.  {@code selectable} is
+     * initially empty.
+     */
+    void getSelectableDates(Date firstDate, int dayCount, BitSet selectable);
+  }
+
   private class DefaultOnInvalidDateSelectedListener implements OnInvalidDateSelectedListener {
     @Override public void onInvalidDateSelected(Date date) {
       String errMessage =
-          getResources().getString(R.string.invalid_date, fullDateFormat.format(minCal.getTime()),
-              fullDateFormat.format(maxCal.getTime()));
+          getResources().getString(R.string.invalid_date,
+              formats.fullDate(minDay), formats.fullDate(maxDay - 1));
       Toast.makeText(getContext(), errMessage, Toast.LENGTH_SHORT).show();
     }
   }
@@ -27,33 +27,48 @@ public class CalendarRowView extends ViewGroup implements View.OnClickListener {
   }
 
   @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-    long start = System.currentTimeMillis();
     final int totalWidth = MeasureSpec.getSize(widthMeasureSpec);
     cellSize = totalWidth / 7;
-    int cellWidthSpec = makeMeasureSpec(cellSize, EXACTLY);
-    int cellHeightSpec = isHeaderRow ? makeMeasureSpec(cellSize, AT_MOST) : cellWidthSpec;
     int rowHeight = 0;
-    for (int c = 0, numChildren = getChildCount(); c < numChildren; c++) {
-
-      final View child = getChildAt(c);
-
+    if (isHeaderRow) {
+      int cellHeightSpec = makeMeasureSpec(cellSize, AT_MOST);
+      for (int c = 0, numChildren = getChildCount(); c < numChildren; c++) {
+        final View child = getChildAt(c);
         LayoutParams layoutParams = (LayoutParams) child.getLayoutParams();
         int childWidthSpec = makeMeasureSpec(cellSize * layoutParams.cols, EXACTLY);
-
-      child.measure(childWidthSpec, cellHeightSpec);
-      // The row height is the height of the tallest cell.
-      if (child.getMeasuredHeight() > rowHeight) {
-        rowHeight = child.getMeasuredHeight();
+        child.measure(childWidthSpec, cellHeightSpec);
+        // The row height is the height of the tallest cell.
+        if (child.getMeasuredHeight() > rowHeight) {
+          rowHeight = child.getMeasuredHeight();
+        }
+      }
+    } else {
+      // Every cell is a square of cellSize whatever its content, so the row is cellSize tall.
+      rowHeight = cellSize;
+      for (int c = 0, numChildren = getChildCount(); c < numChildren; c++) {
+        measureFixedCell(getChildAt(c));
       }
     }
     final int widthWithPadding = totalWidth + getPaddingLeft() + getPaddingRight();
     final int heightWithPadding = rowHeight + getPaddingTop() + getPaddingBottom();
     setMeasuredDimension(widthWithPadding, heightWithPadding);
-    Logr.d("Row.onMeasure %d ms", System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Gives {@code child} the fixed size of its cells, unless it already has it.  The cells of
+   * week.xml match their parent: a TextView that doesn't wrap its content lays out new text of the
+   * same height itself instead of requesting a layout, so rebinding a recycled month doesn't
+   * measure its cells again.
+   */
+  private void measureFixedCell(View child) {
+    int width = cellSize * ((LayoutParams) child.getLayoutParams()).cols;
+    if (child.isLayoutRequested() || child.getMeasuredWidth() != width
+        || child.getMeasuredHeight() != cellSize) {
+      child.measure(makeMeasureSpec(width, EXACTLY), makeMeasureSpec(cellSize, EXACTLY));
+    }
   }
 
   @Override protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-    long start = System.currentTimeMillis();
     int cellHeight = bottom - top;
     for (int c = 0, offset = 0, numChildren = getChildCount(); c < numChildren; c++) {
       final View child = getChildAt(c);
@@ -64,7 +79,6 @@ public class CalendarRowView extends ViewGroup implements View.OnClickListener {
 
         offset += params.cols;
     }
-    Logr.d("Row.onLayout %d ms", System.currentTimeMillis() - start);
   }
 
     public boolean isHeaderRow() {
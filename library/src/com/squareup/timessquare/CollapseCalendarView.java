@@ -1,63 +1,75 @@
 package com.squareup.timessquare;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
 import android.widget.LinearLayout;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Future;
 
-import static com.squareup.timessquare.CalendarPickerView.SelectionMode;
-import static com.squareup.timessquare.CalendarPickerView.betweenDates;
-import static com.squareup.timessquare.CalendarPickerView.containsDate;
-import static com.squareup.timessquare.CalendarPickerView.maxDate;
-import static com.squareup.timessquare.CalendarPickerView.minDate;
-import static com.squareup.timessquare.CalendarPickerView.sameDate;
-import static com.squareup.timessquare.CalendarPickerView.sameMonth;
-import static com.squareup.timessquare.CalendarPickerView.setMidnight;
-import static com.squareup.timessquare.MonthCellDescriptor.RangeState;
-import static java.util.Calendar.DATE;
-import static java.util.Calendar.DAY_OF_MONTH;
-import static java.util.Calendar.DAY_OF_WEEK;
-import static java.util.Calendar.MONTH;
-import static java.util.Calendar.YEAR;
+import static com.squareup.timessquare.CalendarModel.betweenDates;
+import static com.squareup.timessquare.CalendarModel.getCell;
 
 /**
  * Created by Blaž Šolar on 17/02/14.
  */
 public class CollapseCalendarView extends LinearLayout {
+    /** How many built months are kept, so that paging back and forth doesn't rebuild them. */
+    private static final int MONTH_CACHE_SIZE = 6;
+    /** How many built weeks are kept while collapsed: the shown one and its neighbours. */
+    private static final int WEEK_CACHE_SIZE = 4;
+    /** How many months of filtered days are remembered. */
+    private static final int FILTERED_MONTHS = 12;
 
     final MonthView.Listener listener = new CellClickedListener();
 
-    final List<Calendar> selectedCals = new ArrayList<>();
-    final List<Calendar> highlightedCals = new ArrayList<>();
-    final List<MonthCellDescriptor> selectedCells = new ArrayList<>();
-    private List<List<MonthCellDescriptor>> mCells = new ArrayList<>();
+    /** The selection and the cells of the months, by epoch month. */
+    final CalendarModel mModel = new CalendarModel(MONTH_CACHE_SIZE, null);
+    List<List<MonthCellDescriptor>> mCells = new ArrayList<>();
+    /** Month descriptors by {@link CalendarDays#epochMonth(int, int) epoch month}. */
+    private final MonthCache<MonthDescriptor> mMonths =
+            new MonthCache<MonthDescriptor>(MONTH_CACHE_SIZE);
+    /** Built weeks by their first day. */
+    private final MonthCache<List<List<MonthCellDescriptor>>> mWeekCache =
+            new MonthCache<List<List<MonthCellDescriptor>>>(WEEK_CACHE_SIZE);
+    private Future<?> mPrefetchTask;
+    /**
+     * Takes prefetched months to the main thread.  The first prefetch starts in the constructor,
+     * before the view is attached: older versions of View would queue a {@link #post(Runnable)}
+     * from the prefetch thread on that thread, where it never runs.
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
 
     private MonthDescriptor mMonth;
-    private MonthView mMonthView;
-
-    SelectionMode selectionMode;
+    final MonthPager mPager;
+    /** The shown page of {@link #mPager}. */
+    MonthView mMonthView;
+    /** Whether only the week starting on {@link #mWeekStart} is shown. */
+    private boolean mCollapsed;
+    private int mWeekStart;
 
     private Locale locale;
-    private DateFormat monthNameFormat;
-    private DateFormat weekdayNameFormat;
-    private DateFormat fullDateFormat;
-    private Calendar minCal;
-    private Calendar maxCal;
+    private CalendarFormats formats;
+    private TimeZone timeZone;
+    /** Today, see {@link CalendarDays}.  Its month, or its week, is the first one shown. */
+    private final int todayDay;
+    /** First selectable day: only the days after today can be selected. */
+    private int minDay;
+    /** Day after the last selectable day: there is no upper bound. */
+    private int maxDay = Integer.MAX_VALUE;
     Calendar today;
 
     private CalendarPickerView.OnDateSelectedListener dateListener;
-    private CalendarPickerView.DateSelectableFilter dateConfiguredListener;
 
     public CollapseCalendarView(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -65,16 +77,25 @@ public class CollapseCalendarView extends LinearLayout {
         setOrientation(VERTICAL);
 
         locale = Locale.getDefault();
-        monthNameFormat = new SimpleDateFormat(context.getString(R.string.month_name_format), locale);
-        weekdayNameFormat = new SimpleDateFormat(context.getString(R.string.day_name_format), locale);
-        fullDateFormat = DateFormat.getDateInstance(DateFormat.MEDIUM, locale);
-        minCal = Calendar.getInstance(locale);
         today = Calendar.getInstance(locale);
-        selectionMode = SelectionMode.SINGLE;
-
-        mMonthView = MonthView.create(this, LayoutInflater.from(getContext()), weekdayNameFormat,
-                listener, today);
-        addView(mMonthView);
+        formats = CalendarFormats.get(context, locale, today.getFirstDayOfWeek());
+        timeZone = today.getTimeZone();
+        todayDay = CalendarDays.fromCalendar(today);
+        minDay = todayDay + 1;
+        mModel.reset(today, timeZone, minDay, maxDay, FILTERED_MONTHS);
+
+        mPager = new MonthPager(context);
+        LayoutInflater inflater = LayoutInflater.from(context);
+        String[] weekdayNames = formats.getWeekdayNames();
+        mPager.setPages(MonthView.create(mPager, inflater, weekdayNames, listener),
+                MonthView.create(mPager, inflater, weekdayNames, listener),
+                MonthView.create(mPager, inflater, weekdayNames, listener));
+        mPager.setListener(new MonthPager.Listener() {
+            @Override public void onPageChanged(int direction) {
+                move(direction);
+            }
+        });
+        addView(mPager, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
 
         Button button = new Button(getContext());
         button.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
@@ -82,219 +103,292 @@ public class CollapseCalendarView extends LinearLayout {
         button.setOnClickListener(new OnClickListener() {
             @Override
             public void onClick(View v) {
-                mMonthView.setOnlyWeek(!mMonthView.getOnlyWeek());
+                setCollapsed(!mCollapsed);
             }
         });
 
-        changeMonth(today);
+        changeMonth(CalendarDays.epochMonth(todayDay));
     }
 
-    public void setDateListener(CalendarPickerView.OnDateSelectedListener dateListener) {
-        this.dateListener = dateListener;
+    /**
+     * Shows only the week of the selected date, or of today if no date of the displayed month is
+     * selected, instead of the whole month.  While collapsed, the previous and next buttons and
+     * swipes move by a week.
+     */
+    public void setCollapsed(boolean collapsed) {
+        if (mCollapsed == collapsed) {
+            return;
+        }
+        mCollapsed = collapsed;
+        if (collapsed) {
+            changeWeek(weekStartOf(getCollapseDay()));
+        } else {
+            changeMonth(CalendarDays.epochMonth(getExpandDay()));
+        }
     }
 
-    public Date getSelectedDate() {
-        return (selectedCals.size() > 0 ? selectedCals.get(0).getTime() : null);
+    public boolean isCollapsed() {
+        return mCollapsed;
     }
 
-    public void setSelectedDate(Calendar calendar) {
-        if(!sameMonth(calendar, mMonth)) {
-            changeMonth(calendar);
+    /** Returns the day whose week is shown when collapsing the displayed month. */
+    private int getCollapseDay() {
+        int firstDay = mMonth.getFirstDay();
+        int lastDay = firstDay + mMonth.getLength() - 1;
+        DaySet selectedDays = mModel.selectedDays;
+        if (!selectedDays.isEmpty()
+                && betweenDates(selectedDays.first(), firstDay, lastDay + 1)) {
+            return selectedDays.first();
         }
+        return betweenDates(todayDay, firstDay, lastDay + 1) ? todayDay : firstDay;
+    }
 
-        for(List<MonthCellDescriptor> week : mCells) {
-            for(MonthCellDescriptor day : week) {
-                Calendar dayCalendar = Calendar.getInstance(locale);
-                dayCalendar.setTime(day.getDate());
-                if(sameDate(calendar, dayCalendar)) {
-                    doSelectDate(calendar.getTime(), day);
-                    return;
-                }
-            }
+    /** Returns the day whose month is shown when expanding the displayed week. */
+    private int getExpandDay() {
+        int weekEnd = mWeekStart + 7;
+        DaySet selectedDays = mModel.selectedDays;
+        if (!selectedDays.isEmpty() && betweenDates(selectedDays.first(), mWeekStart, weekEnd)) {
+            return selectedDays.first();
         }
+        return betweenDates(todayDay, mWeekStart, weekEnd) ? todayDay : mMonth.getFirstDay();
     }
 
-    private void changeMonth(Calendar calendar) {
-
-        Date date = calendar.getTime();
-
-        // get current month
-        mMonth = new MonthDescriptor(calendar.get(MONTH), calendar.get(YEAR), date,
-                monthNameFormat.format(date));
-        mCells = getMonthCells(mMonth, calendar);
+    private int weekStartOf(int day) {
+        return day - CalendarDays.weekOffset(day, today.getFirstDayOfWeek());
+    }
 
-        initMonth();
+    public void setDateListener(CalendarPickerView.OnDateSelectedListener dateListener) {
+        this.dateListener = dateListener;
     }
 
-    private void initMonth() {
-        mMonthView.init(mMonth, mCells, false);
+    public Date getSelectedDate() {
+        DaySet selectedDays = mModel.selectedDays;
+        return selectedDays.isEmpty() ? null : CalendarDays.toDate(selectedDays.first(), timeZone);
     }
 
-    private List<List<MonthCellDescriptor>> getMonthCells(MonthDescriptor month, Calendar startCal) {
-        Calendar cal = Calendar.getInstance(locale);
-        cal.setTime(startCal.getTime());
-        List<List<MonthCellDescriptor>> cells = new ArrayList<List<MonthCellDescriptor>>();
-        cal.set(DAY_OF_MONTH, 1);
-        int firstDayOfWeek = cal.get(DAY_OF_WEEK);
-        int offset = cal.getFirstDayOfWeek() - firstDayOfWeek;
-        if (offset > 0) {
-            offset -= 7;
+    public void setSelectedDate(Calendar calendar) {
+        int selectedDay = CalendarDays.fromCalendar(calendar);
+        if (mCollapsed) {
+            if (weekStartOf(selectedDay) != mWeekStart) {
+                changeWeek(weekStartOf(selectedDay));
+            }
+        } else {
+            int epochMonth = CalendarDays.epochMonth(selectedDay);
+            if (epochMonth != getEpochMonth()) {
+                changeMonth(epochMonth);
+            }
         }
-        cal.add(Calendar.DATE, offset);
-
-        Calendar minSelectedCal = minDate(selectedCals);
-        Calendar maxSelectedCal = maxDate(selectedCals);
-
-        while ((cal.get(MONTH) < month.getMonth() + 1 || cal.get(YEAR) < month.getYear()) //
-                && cal.get(YEAR) <= month.getYear()) {
-            Logr.d("Building week row starting at %s", cal.getTime());
-            List<MonthCellDescriptor> weekCells = new ArrayList<MonthCellDescriptor>();
-            cells.add(weekCells);
-            for (int c = 0; c < 7; c++) {
-                Date date = cal.getTime();
-                boolean isCurrentMonth = cal.get(MONTH) == month.getMonth();
-                boolean isSelected = isCurrentMonth && containsDate(selectedCals, cal);
-                boolean isSelectable =
-                        isCurrentMonth && betweenDates(cal, minCal, maxCal) && isDateSelectable(date);
-                boolean isToday = sameDate(cal, today);
-                boolean isHighlighted = containsDate(highlightedCals, cal);
-                int value = cal.get(DAY_OF_MONTH);
-
-                RangeState rangeState = RangeState.NONE;
-                if (selectedCals.size() > 1) {
-                    if (sameDate(minSelectedCal, cal)) {
-                        rangeState = RangeState.FIRST;
-                    } else if (sameDate(maxDate(selectedCals), cal)) {
-                        rangeState = RangeState.LAST;
-                    } else if (betweenDates(cal, minSelectedCal, maxSelectedCal)) {
-                        rangeState = RangeState.MIDDLE;
-                    }
-                }
 
-                weekCells.add(
-                        new MonthCellDescriptor(date, isCurrentMonth, isSelectable, isSelected, isToday,
-                                isHighlighted, value, rangeState));
-                cal.add(DATE, 1);
-            }
+        MonthCellDescriptor cell = getCell(mCells, selectedDay);
+        if(cell != null) {
+            doSelectDate(selectedDay, cell);
         }
-        return cells;
     }
 
-    private boolean isDateSelectable(Date date) {
-        return dateConfiguredListener == null || dateConfiguredListener.isDateSelectable(date);
+    /** Returns the epoch month of the displayed month. */
+    private int getEpochMonth() {
+        return CalendarDays.epochMonth(mMonth.getYear(), mMonth.getMonth());
     }
 
-    private boolean doSelectDate(Date date, MonthCellDescriptor cell) {
-        Calendar newlySelectedCal = Calendar.getInstance(locale);
-        newlySelectedCal.setTime(date);
-        // Sanitize input: clear out the hours/minutes/seconds/millis.
-        setMidnight(newlySelectedCal);
+    /** Shows the page in {@code direction}, or builds it if its page isn't ready. */
+    private void page(int direction) {
+        if (mPager.canShowPage(direction)) {
+            // Calls move() once the neighbour is the shown page.
+            mPager.showPage(direction);
+        } else {
+            move(direction);
+        }
+    }
 
-        // Clear any remaining range state.
-        for (MonthCellDescriptor selectedCell : selectedCells) {
-            selectedCell.setRangeState(RangeState.NONE);
+    /**
+     * Moves to the previous month or week for a {@code direction} of -1, or to the next one for 1.
+     * Nothing is shown before the month, or the week, of today.
+     */
+    private void move(int direction) {
+        if (mCollapsed) {
+            if (direction > 0 || mWeekStart > todayDay) {
+                changeWeek(mWeekStart + 7 * direction);
+            }
+        } else if (direction > 0 || getEpochMonth() > CalendarDays.epochMonth(todayDay)) {
+            changeMonth(getEpochMonth() + direction);
         }
+    }
 
-        switch (selectionMode) {
-            case RANGE:
-                if (selectedCals.size() > 1) {
-                    // We've already got a range selected: clear the old one.
-                    clearOldSelections();
-                } else if (selectedCals.size() == 1 && newlySelectedCal.before(selectedCals.get(0))) {
-                    // We're moving the start of the range back in time: clear the old start date.
-                    clearOldSelections();
-                }
-                break;
+    /**
+     * Shows the month {@code epochMonth}, built now unless it's cached, then builds its neighbours
+     * in the background.
+     */
+    private void changeMonth(int epochMonth) {
+        mMonth = getMonth(epochMonth);
+        mCells = mModel.getMonthCells(epochMonth);
 
-            case MULTIPLE:
-                date = applyMultiSelect(date, newlySelectedCal);
-                break;
+        bindPages(false);
+        prefetchNeighbours(epochMonth);
+    }
 
-            case SINGLE:
-                clearOldSelections();
-                break;
-            default:
-                throw new IllegalStateException("Unknown selectionMode " + selectionMode);
+    private MonthDescriptor getMonth(int epochMonth) {
+        MonthDescriptor month = mMonths.get(epochMonth);
+        if (month == null) {
+            int firstDay = CalendarDays.firstDayOfEpochMonth(epochMonth);
+            Date date = CalendarDays.toDate(firstDay, timeZone);
+            month = new MonthDescriptor(CalendarDays.month(firstDay), CalendarDays.year(firstDay),
+                    date, formats.monthLabel(firstDay));
+            mMonths.put(epochMonth, month);
         }
+        return month;
+    }
 
-        if (date != null) {
-            // Select a new cell.
-            if (selectedCells.size() == 0 || !selectedCells.get(0).equals(cell)) {
-                selectedCells.add(cell);
-                cell.setSelected(true);
-            }
-            selectedCals.add(newlySelectedCal);
-
-            if (selectionMode == SelectionMode.RANGE && selectedCells.size() > 1) {
-                // Select all days in between start and end.
-                Date start = selectedCells.get(0).getDate();
-                Date end = selectedCells.get(1).getDate();
-                selectedCells.get(0).setRangeState(RangeState.FIRST);
-                selectedCells.get(1).setRangeState(RangeState.LAST);
-
-                for (List<MonthCellDescriptor> week : mCells) {
-                    for (MonthCellDescriptor singleCell : week) {
-                        if (singleCell.getDate().after(start)
-                                && singleCell.getDate().before(end)
-                                && singleCell.isSelectable()) {
-                            singleCell.setSelected(true);
-                            singleCell.setRangeState(RangeState.MIDDLE);
-                            selectedCells.add(singleCell);
+    /**
+     * Builds the cells of the months before and after {@code epochMonth} on a background thread
+     * unless they're cached, so that the previous and next buttons don't have to.
+     */
+    private void prefetchNeighbours(final int epochMonth) {
+        final boolean previous = epochMonth > CalendarDays.epochMonth(todayDay)
+                && mModel.getCachedMonthCells(epochMonth - 1) == null;
+        final boolean next = mModel.getCachedMonthCells(epochMonth + 1) == null;
+        if (!previous && !next) {
+            return;
+        }
+        if (mPrefetchTask != null) {
+            mPrefetchTask.cancel(false);
+        }
+        // The model isn't thread-safe: hand its configuration over.
+        final int firstDayOfWeek = mModel.getFirstDayOfWeek();
+        final CalendarPickerView.DateSelectableFilter filter = mModel.getFilter();
+        final SelectableDays selectable = mModel.getSelectableDays();
+        final int filterMinDay = minDay;
+        final int filterMaxDay = maxDay;
+        final TimeZone filterTimeZone = timeZone;
+        mPrefetchTask = CalendarPickerView.getFilterExecutor().submit(new Runnable() {
+            @Override public void run() {
+                final List<List<MonthCellDescriptor>> previousCells =
+                        previous ? buildMonth(epochMonth - 1) : null;
+                final List<List<MonthCellDescriptor>> nextCells =
+                        next ? buildMonth(epochMonth + 1) : null;
+                mMainHandler.post(new Runnable() {
+                    @Override public void run() {
+                        // Skipped if the UI thread built them in the meantime.
+                        if (previousCells != null) {
+                            mModel.putMonthCells(epochMonth - 1, previousCells);
+                        }
+                        if (nextCells != null) {
+                            mModel.putMonthCells(epochMonth + 1, nextCells);
+                        }
+                        if (!mCollapsed && getEpochMonth() == epochMonth) {
+                            bindPages(false);
                         }
                     }
-                }
+                });
             }
-        }
 
-        // Update the adapter.
-        mMonthView.init(mMonth, mCells, false);
-        return date != null;
+            private List<List<MonthCellDescriptor>> buildMonth(int month) {
+                int mask = CalendarModel.computeSelectableMask(
+                        CalendarDays.firstDayOfEpochMonth(month), filter, filterMinDay,
+                        filterMaxDay, filterTimeZone);
+                selectable.put(month, mask);
+                return CalendarModel.buildMonthCells(month, firstDayOfWeek, filterTimeZone,
+                        todayDay, mask);
+            }
+        });
     }
 
-    private void clearOldSelections() {
-        for (MonthCellDescriptor selectedCell : selectedCells) {
-            // De-select the currently-selected cell.
-            selectedCell.setSelected(false);
+    /**
+     * Shows the week starting on {@code weekStart}, labelled with the month that has most of its
+     * days.  Only the cells of that week are built, and its days of another month look and act
+     * like the days of the adjacent months in a whole month.
+     */
+    private void changeWeek(int weekStart) {
+        mWeekStart = weekStart;
+        mMonth = getMonth(CalendarDays.epochMonth(weekStart + 3));
+        mCells = getWeek(weekStart);
+
+        bindPages(false);
+    }
+
+    /** Returns the cells of the week starting on {@code weekStart}, built unless it's cached. */
+    private List<List<MonthCellDescriptor>> getWeek(int weekStart) {
+        List<List<MonthCellDescriptor>> week = mWeekCache.get(weekStart);
+        if (week == null) {
+            week = new ArrayList<List<MonthCellDescriptor>>(1);
+            week.add(mModel.buildWeek(weekStart));
+            mWeekCache.put(weekStart, week);
         }
-        selectedCells.clear();
-        selectedCals.clear();
+        return week;
     }
 
-    private static String dbg(Date minDate, Date maxDate) {
-        return "minDate: " + minDate + "\nmaxDate: " + maxDate;
+    /**
+     * Binds the shown page to {@link #mCells}, and its neighbours to the months or weeks around it
+     * so that they can be swiped to.  A neighbour month that hasn't been prefetched yet is hidden,
+     * and bound once it has.  Pages already bound to their cells are only bound again if {@code
+     * force} is set, because the selection changed.
+     */
+    private void bindPages(boolean force) {
+        mMonthView = (MonthView) mPager.getPage(0);
+        bindPage(mMonthView, mMonth, mCells, force);
+        for (int direction = -1; direction <= 1; direction += 2) {
+            MonthView page = (MonthView) mPager.getPage(direction);
+            page.setVisibility(bindNeighbour(page, direction, force) ? VISIBLE : INVISIBLE);
+        }
     }
 
-    private Date applyMultiSelect(Date date, Calendar selectedCal) {
-        for (MonthCellDescriptor selectedCell : selectedCells) {
-            if (selectedCell.getDate().equals(date)) {
-                // De-select the currently-selected cell.
-                selectedCell.setSelected(false);
-                selectedCells.remove(selectedCell);
-                date = null;
-                break;
+    /**
+     * Binds {@code page} to the month or week in {@code direction}, unless it can't be shown right
+     * away.  Returns whether it was bound.
+     */
+    private boolean bindNeighbour(MonthView page, int direction, boolean force) {
+        if (mCollapsed) {
+            if (direction < 0 && mWeekStart <= todayDay) {
+                return false;
             }
+            int weekStart = mWeekStart + 7 * direction;
+            bindPage(page, getMonth(CalendarDays.epochMonth(weekStart + 3)), getWeek(weekStart),
+                    force);
+            return true;
         }
-        for (Calendar cal : selectedCals) {
-            if (sameDate(cal, selectedCal)) {
-                selectedCals.remove(cal);
-                break;
-            }
+        int epochMonth = getEpochMonth() + direction;
+        List<List<MonthCellDescriptor>> cells = epochMonth < CalendarDays.epochMonth(todayDay)
+                ? null : mModel.getCachedMonthCells(epochMonth);
+        if (cells == null) {
+            return false;
         }
-        return date;
+        bindPage(page, getMonth(epochMonth), cells, force);
+        return true;
+    }
+
+    private void bindPage(MonthView page, MonthDescriptor month,
+            List<List<MonthCellDescriptor>> cells, boolean force) {
+        if (force || page.getTag() != cells) {
+            // Weeks aren't cached by the model, so their states are resolved here.
+            mModel.updateStates(cells);
+            page.init(month, cells, false);
+            page.setTag(cells);
+        }
+    }
+
+    private boolean doSelectDate(int day, MonthCellDescriptor cell) {
+        boolean select = mModel.selectDay(day, cell);
+
+        // A range is only stored as its two ends: resolve the shown pages against it.
+        bindPages(true);
+        return select;
+    }
+
+    private static String dbg(Date minDate, Date maxDate) {
+        return "minDate: " + minDate + "\nmaxDate: " + maxDate;
     }
 
     private class CellClickedListener implements MonthView.Listener {
         @Override public void handleClick(MonthCellDescriptor cell) {
-            Date clickedDate = cell.getDate();
+            int clickedDay = cell.getDay();
 
-            if (betweenDates(clickedDate, minCal, maxCal) && isDateSelectable(clickedDate)) {
-                boolean wasSelected = doSelectDate(clickedDate, cell);
+            if (mModel.isDateSelectable(clickedDay)) {
+                boolean wasSelected = doSelectDate(clickedDay, cell);
 
                 if (dateListener != null) {
                     if (wasSelected) {
-                        dateListener.onDateSelected(clickedDate);
+                        dateListener.onDateSelected(cell.getDate());
                     } else {
-                        dateListener.onDateUnselected(clickedDate);
+                        dateListener.onDateUnselected(cell.getDate());
                     }
                 }
             }
@@ -302,21 +396,12 @@ public class CollapseCalendarView extends LinearLayout {
 
         @Override
         public void prevClick() {
-            Calendar calendar = new GregorianCalendar(locale);
-            calendar.setTime(mMonth.getDate());
-            calendar.add(Calendar.MONTH, -1);
-            if(betweenDates(calendar, minCal, maxCal) ||
-                    minCal.get(MONTH) == calendar.get(MONTH) && minCal.get(YEAR) == calendar.get(YEAR)) {
-                changeMonth(calendar);
-            }
+            page(-1);
         }
 
         @Override
         public void nextClick() {
-            Calendar calendar = new GregorianCalendar(locale);
-            calendar.setTime(mMonth.getDate());
-            calendar.add(Calendar.MONTH, 1);
-            changeMonth(calendar);
+            page(1);
         }
     }
 
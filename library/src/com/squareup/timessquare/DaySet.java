@@ -0,0 +1,79 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Arrays;
+
+/**
+ * A sorted set of {@link CalendarDays epoch days} backed by a primitive array.  Membership is a
+ * binary search and the first and last days are read directly, so checking every cell of a month
+ * against hundreds of selected dates stays cheap.
+ */
+final class DaySet {
+  private static final int[] EMPTY = new int[0];
+
+  private int[] days = EMPTY;
+  private int size;
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  boolean contains(int day) {
+    return Arrays.binarySearch(days, 0, size, day) >= 0;
+  }
+
+  /** Returns the {@code index}th smallest day. */
+  int get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+    }
+    return days[index];
+  }
+
+  int first() {
+    return get(0);
+  }
+
+  int last() {
+    return get(size - 1);
+  }
+
+  /** Adds {@code day} and returns true, or returns false if it was already present. */
+  boolean add(int day) {
+    int index = Arrays.binarySearch(days, 0, size, day);
+    if (index >= 0) {
+      return false;
+    }
+    index = -index - 1;
+    if (size == days.length) {
+      days = Arrays.copyOf(days, Math.max(8, size * 2));
+    }
+    System.arraycopy(days, index, days, index + 1, size - index);
+    days[index] = day;
+    size++;
+    return true;
+  }
+
+  /** Removes {@code day} and returns true, or returns false if it wasn't present. */
+  boolean remove(int day) {
+    int index = Arrays.binarySearch(days, 0, size, day);
+    if (index < 0) {
+      return false;
+    }
+    System.arraycopy(days, index + 1, days, index, size - index - 1);
+    size--;
+    return true;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  @Override public String toString() {
+    return Arrays.toString(Arrays.copyOf(days, size));
+  }
+}
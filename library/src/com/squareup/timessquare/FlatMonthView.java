@@ -0,0 +1,397 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import java.text.DateFormat;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import static com.squareup.timessquare.CalendarCellView.FLAG_CURRENT_MONTH;
+import static com.squareup.timessquare.CalendarCellView.FLAG_HIGHLIGHTED;
+import static com.squareup.timessquare.CalendarCellView.FLAG_RANGE_FIRST;
+import static com.squareup.timessquare.CalendarCellView.FLAG_RANGE_LAST;
+import static com.squareup.timessquare.CalendarCellView.FLAG_RANGE_MIDDLE;
+import static com.squareup.timessquare.CalendarCellView.FLAG_SELECTABLE;
+import static com.squareup.timessquare.CalendarCellView.FLAG_SELECTED;
+import static com.squareup.timessquare.CalendarCellView.FLAG_TODAY;
+
+/**
+ * Draws a whole month in a single view: the title, the day-of-week headers, the day numbers, their
+ * backgrounds and the dividers are painted straight onto the canvas and taps are mapped to a cell
+ * by their coordinates.  It shows the same {@link MonthCellDescriptor}s as {@link MonthView}
+ * without inflating a view for each day.
+ * <p>
+ * By default cells are styled with the same drawable and color state lists as {@link
+ * CalendarCellView}.  {@link #setUseDrawableStates(boolean) setUseDrawableStates(false)} paints
+ * the library's colors directly instead, which skips the state list lookups.
+ */
+public class FlatMonthView extends View {
+  /** A pressed cell: {@link CalendarCellView} flags stop at bit 7. */
+  private static final int FLAG_PRESSED = 1 << 8;
+  /** An enabled cell, i.e. one of the current month, like {@link View#setEnabled(boolean)}. */
+  private static final int FLAG_ENABLED = 1 << 9;
+  /** Drawable state sets by cell flags, built when first used. */
+  private static final int[][] STATE_SETS = new int[1 << 10][];
+
+  private final Paint titlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint headerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint dayPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint fillPaint = new Paint();
+  private final Paint dividerPaint = new Paint();
+  private final Drawable cellBackground;
+  private final ColorStateList cellTextColors;
+  private String[] weekdayNames;
+  /** Colors used when drawable states are off, mirroring the selectors. */
+  private final int activeMonthBg;
+  private final int inactiveMonthBg;
+  private final int selectedDayBg;
+  private final int selectedRangeBg;
+  private final int highlightedDayBg;
+  private final int textActive;
+  private final int textInactive;
+  private final int textSelected;
+  private final int textUnselectable;
+  private final int titleHeight;
+  private final int headerHeight;
+  private final int titleTopMargin;
+
+  private MonthView.Listener listener;
+  private String title;
+  private List<List<MonthCellDescriptor>> cells;
+  /** Number of blank weeks shown while {@link #cells} is null. */
+  private int placeholderRows;
+  private boolean displayOnly;
+  private boolean useDrawableStates = true;
+  private int cellSize;
+  private int pressedRow = -1;
+  private int pressedColumn = -1;
+
+  public static FlatMonthView create(Context context, DateFormat weekdayNameFormat,
+      MonthView.Listener listener, Calendar today) {
+    return create(context,
+        CalendarFormats.weekdayNames(weekdayNameFormat, today.getFirstDayOfWeek()), listener);
+  }
+
+  /** Creates a month view whose header shows {@code weekdayNames}, which it doesn't modify. */
+  static FlatMonthView create(Context context, String[] weekdayNames,
+      MonthView.Listener listener) {
+    long start = CalendarMetrics.start();
+    final FlatMonthView view = new FlatMonthView(context, null);
+    view.weekdayNames = weekdayNames;
+    view.listener = listener;
+    CalendarMetrics.end(CalendarMetrics.Event.INFLATE, start, 1);
+    return view;
+  }
+
+  /** Sets the listener of a view taken from a {@link MonthViewPool}, or clears it with null. */
+  void setListener(MonthView.Listener listener) {
+    this.listener = listener;
+  }
+
+  public FlatMonthView(Context context, AttributeSet attrs) {
+    super(context, attrs);
+    Resources res = getResources();
+    titlePaint.setTextSize(res.getDimension(R.dimen.calendar_text_medium));
+    titlePaint.setColor(res.getColor(R.color.calendar_text_active));
+    titlePaint.setTypeface(Typeface.DEFAULT_BOLD);
+    titlePaint.setTextAlign(Paint.Align.CENTER);
+    headerPaint.setTextSize(res.getDimension(R.dimen.calendar_text_small));
+    headerPaint.setColor(res.getColor(R.color.calendar_text_active));
+    headerPaint.setTextAlign(Paint.Align.CENTER);
+    dayPaint.setTextSize(res.getDimension(R.dimen.calendar_text_medium));
+    dayPaint.setTypeface(Typeface.DEFAULT_BOLD);
+    dayPaint.setTextAlign(Paint.Align.CENTER);
+    dividerPaint.setColor(res.getColor(R.color.calendar_divider));
+    cellBackground = res.getDrawable(R.drawable.calendar_bg_selector);
+    cellTextColors = res.getColorStateList(R.color.calendar_text_selector);
+    activeMonthBg = res.getColor(R.color.calendar_active_month_bg);
+    inactiveMonthBg = res.getColor(R.color.calendar_inactive_month_bg);
+    selectedDayBg = res.getColor(R.color.calendar_selected_day_bg);
+    selectedRangeBg = res.getColor(R.color.calendar_selected_range_bg);
+    highlightedDayBg = res.getColor(R.color.calendar_highlighted_day_bg);
+    textActive = res.getColor(R.color.calendar_text_active);
+    textInactive = res.getColor(R.color.calendar_text_inactive);
+    textSelected = res.getColor(R.color.calendar_text_selected);
+    textUnselectable = res.getColor(R.color.calendar_text_unselectable);
+
+    int headerPadding = res.getDimensionPixelSize(R.dimen.calendar_day_headers_paddingbottom);
+    titleTopMargin = res.getDimensionPixelSize(R.dimen.calendar_month_topmargin);
+    titleHeight = titleTopMargin + textHeight(titlePaint)
+        + res.getDimensionPixelSize(R.dimen.calendar_month_title_bottommargin) + headerPadding;
+    headerHeight = textHeight(headerPaint) + headerPadding;
+  }
+
+  public void init(MonthDescriptor month, List<List<MonthCellDescriptor>> cells,
+      boolean displayOnly) {
+    long start = CalendarMetrics.start();
+    boolean rowsChanged = rowCount() != cells.size();
+    this.title = month.getLabel();
+    this.cells = cells;
+    this.displayOnly = displayOnly;
+    pressedRow = -1;
+    if (rowsChanged) {
+      requestLayout();
+    }
+    invalidate();
+    CalendarMetrics.end(CalendarMetrics.Event.BIND, start, cells.size() * 7);
+  }
+
+  /** Shows {@code month} with {@code numRows} blank weeks, while its cells aren't ready. */
+  void initPlaceholder(MonthDescriptor month, int numRows) {
+    boolean rowsChanged = rowCount() != numRows;
+    title = month.getLabel();
+    cells = null;
+    placeholderRows = numRows;
+    pressedRow = -1;
+    if (rowsChanged) {
+      requestLayout();
+    }
+    invalidate();
+  }
+
+  private int rowCount() {
+    return cells != null ? cells.size() : placeholderRows;
+  }
+
+  /**
+   * Whether cells are styled through the drawable and color state lists used by {@link
+   * CalendarCellView}, which is the default.  If false, the library's colors are painted directly.
+   */
+  public void setUseDrawableStates(boolean useDrawableStates) {
+    if (this.useDrawableStates != useDrawableStates) {
+      this.useDrawableStates = useDrawableStates;
+      invalidate();
+    }
+  }
+
+  @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    int width = MeasureSpec.getSize(widthMeasureSpec);
+    cellSize = (width - getPaddingLeft() - getPaddingRight()) / 7;
+    int height =
+        getPaddingTop() + titleHeight + headerHeight + rowCount() * cellSize + getPaddingBottom();
+    setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+  }
+
+  @Override protected void onDraw(Canvas canvas) {
+    if (title == null) {
+      return;
+    }
+    final int left = getPaddingLeft() + (getWidth() - getPaddingLeft() - getPaddingRight()
+        - cellSize * 7) / 2;
+    int top = getPaddingTop();
+
+    canvas.drawText(title, getWidth() / 2f, top + titleTopMargin - titlePaint.ascent(), titlePaint);
+    top += titleHeight;
+    for (int c = 0; c < 7; c++) {
+      canvas.drawText(weekdayNames[c], left + c * cellSize + cellSize / 2f,
+          top - headerPaint.ascent(), headerPaint);
+    }
+    top += headerHeight;
+
+    final float textOffset = -(dayPaint.ascent() + dayPaint.descent()) / 2f;
+    final int rows = rowCount();
+    for (int r = 0; r < rows; r++) {
+      int cellTop = top + r * cellSize;
+      if (cells == null) {
+        // A placeholder week.
+        fillPaint.setColor(activeMonthBg);
+        canvas.drawRect(left, cellTop, left + cellSize * 7, cellTop + cellSize, fillPaint);
+      }
+      List<MonthCellDescriptor> week =
+          cells != null ? cells.get(r) : Collections.<MonthCellDescriptor>emptyList();
+      for (int c = 0; c < week.size(); c++) {
+        MonthCellDescriptor cell = week.get(c);
+        int cellLeft = left + c * cellSize;
+        int flags = flagsOf(cell, r == pressedRow && c == pressedColumn);
+        if (useDrawableStates) {
+          int[] stateSet = stateSetOf(flags);
+          cellBackground.setState(stateSet);
+          cellBackground.setBounds(cellLeft, cellTop, cellLeft + cellSize, cellTop + cellSize);
+          cellBackground.draw(canvas);
+          dayPaint.setColor(cellTextColors.getColorForState(stateSet, 0));
+        } else {
+          fillPaint.setColor(backgroundColorOf(flags));
+          canvas.drawRect(cellLeft, cellTop, cellLeft + cellSize, cellTop + cellSize, fillPaint);
+          dayPaint.setColor(textColorOf(flags));
+        }
+        canvas.drawText(MonthView.dayLabel(cell.getValue()), cellLeft + cellSize / 2f,
+            cellTop + cellSize / 2f + textOffset, dayPaint);
+      }
+      // Each row's bottom border.
+      int bottom = cellTop + cellSize - 1;
+      canvas.drawLine(left, bottom, left + cellSize * 7, bottom, dividerPaint);
+    }
+
+    // Left side border and each cell's right-side border.
+    int bottom = top + rows * cellSize;
+    canvas.drawLine(left, top, left, bottom, dividerPaint);
+    for (int c = 1; c <= 7; c++) {
+      int x = left + c * cellSize - 1;
+      canvas.drawLine(x, top, x, bottom, dividerPaint);
+    }
+  }
+
+  @Override public boolean onTouchEvent(MotionEvent event) {
+    if (cells == null || displayOnly) {
+      return super.onTouchEvent(event);
+    }
+    int row = rowAt(event.getY());
+    int column = columnAt(event.getX());
+    switch (event.getAction()) {
+      case MotionEvent.ACTION_DOWN:
+        // Days of the adjacent months can't be clicked, like the disabled cells of MonthView.
+        if (row != -1 && column != -1 && cells.get(row).get(column).isCurrentMonth()) {
+          setPressedCell(row, column);
+        }
+        return pressedRow != -1;
+      case MotionEvent.ACTION_MOVE:
+        if (row != pressedRow || column != pressedColumn) {
+          setPressedCell(-1, -1);
+        }
+        return true;
+      case MotionEvent.ACTION_UP:
+        if (pressedRow != -1 && row == pressedRow && column == pressedColumn) {
+          playSoundEffect(SoundEffectConstants.CLICK);
+          if (listener != null) {
+            listener.handleClick(cells.get(row).get(column));
+          }
+        }
+        setPressedCell(-1, -1);
+        return true;
+      case MotionEvent.ACTION_CANCEL:
+        setPressedCell(-1, -1);
+        return true;
+      default:
+        return true;
+    }
+  }
+
+  /** Returns the cell drawn at ({@code x}, {@code y}), or null if there's none. */
+  MonthCellDescriptor getCellAt(float x, float y) {
+    int row = rowAt(y);
+    int column = columnAt(x);
+    return cells == null || row == -1 || column == -1 ? null : cells.get(row).get(column);
+  }
+
+  private int rowAt(float y) {
+    float offset = y - getPaddingTop() - titleHeight - headerHeight;
+    int row = offset < 0 || cellSize == 0 ? -1 : (int) (offset / cellSize);
+    return row < rowCount() ? row : -1;
+  }
+
+  private int columnAt(float x) {
+    float offset = x - getPaddingLeft()
+        - (getWidth() - getPaddingLeft() - getPaddingRight() - cellSize * 7) / 2;
+    int column = offset < 0 || cellSize == 0 ? -1 : (int) (offset / cellSize);
+    return column < 7 ? column : -1;
+  }
+
+  private void setPressedCell(int row, int column) {
+    if (row == -1 || column == -1) {
+      row = -1;
+      column = -1;
+    }
+    if (row != pressedRow || column != pressedColumn) {
+      pressedRow = row;
+      pressedColumn = column;
+      invalidate();
+    }
+  }
+
+  private static int flagsOf(MonthCellDescriptor cell, boolean pressed) {
+    // Days inside a range are drawn selected, like MonthView does.
+    boolean selected =
+        cell.isSelected() || cell.getRangeState() == MonthCellDescriptor.RangeState.MIDDLE;
+    int flags = CalendarCellView.stateOf(cell, selected);
+    if (cell.isCurrentMonth()) {
+      flags |= FLAG_ENABLED;
+    }
+    return pressed ? flags | FLAG_PRESSED : flags;
+  }
+
+  /** Returns the drawable state a {@link CalendarCellView} with {@code flags} would have. */
+  private static int[] stateSetOf(int flags) {
+    int[] stateSet = STATE_SETS[flags];
+    if (stateSet == null) {
+      int[] states = new int[10];
+      int size = 0;
+      if ((flags & FLAG_ENABLED) != 0) {
+        states[size++] = android.R.attr.state_enabled;
+      }
+      if ((flags & FLAG_PRESSED) != 0) {
+        states[size++] = android.R.attr.state_pressed;
+      }
+      if ((flags & FLAG_SELECTED) != 0) {
+        states[size++] = android.R.attr.state_selected;
+      }
+      if ((flags & FLAG_SELECTABLE) != 0) {
+        states[size++] = R.attr.state_selectable;
+      }
+      if ((flags & FLAG_CURRENT_MONTH) != 0) {
+        states[size++] = R.attr.state_current_month;
+      }
+      if ((flags & FLAG_TODAY) != 0) {
+        states[size++] = R.attr.state_today;
+      }
+      if ((flags & FLAG_HIGHLIGHTED) != 0) {
+        states[size++] = R.attr.state_highlighted;
+      }
+      if ((flags & FLAG_RANGE_FIRST) != 0) {
+        states[size++] = R.attr.state_range_first;
+      } else if ((flags & FLAG_RANGE_MIDDLE) != 0) {
+        states[size++] = R.attr.state_range_middle;
+      } else if ((flags & FLAG_RANGE_LAST) != 0) {
+        states[size++] = R.attr.state_range_last;
+      }
+      stateSet = new int[size];
+      System.arraycopy(states, 0, stateSet, 0, size);
+      STATE_SETS[flags] = stateSet;
+    }
+    return stateSet;
+  }
+
+  /** Mirrors {@code calendar_bg_selector}. */
+  private int backgroundColorOf(int flags) {
+    if ((flags & FLAG_RANGE_MIDDLE) != 0) {
+      return selectedRangeBg;
+    } else if ((flags & (FLAG_SELECTED | FLAG_PRESSED)) != 0) {
+      return selectedDayBg;
+    } else if ((flags & FLAG_CURRENT_MONTH) == 0) {
+      return inactiveMonthBg;
+    } else if ((flags & FLAG_HIGHLIGHTED) != 0) {
+      return highlightedDayBg;
+    } else if ((flags & FLAG_TODAY) != 0) {
+      return textActive;
+    }
+    return activeMonthBg;
+  }
+
+  /** Mirrors {@code calendar_text_selector}. */
+  private int textColorOf(int flags) {
+    if ((flags & (FLAG_SELECTED | FLAG_PRESSED)) != 0) {
+      return textSelected;
+    } else if ((flags & FLAG_CURRENT_MONTH) == 0) {
+      return textInactive;
+    } else if ((flags & FLAG_TODAY) != 0) {
+      return activeMonthBg;
+    } else if ((flags & FLAG_SELECTABLE) == 0) {
+      return textUnselectable;
+    }
+    return textActive;
+  }
+
+  private static int textHeight(Paint paint) {
+    return (int) Math.ceil(paint.descent() - paint.ascent());
+  }
+}
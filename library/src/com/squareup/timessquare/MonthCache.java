@@ -0,0 +1,77 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of built months, such as their cells.  When full, the least recently used month is
+ * evicted so that only the months around the ones currently being displayed stay in memory.
+ * <p>
+ * Caches are small, so months are kept in arrays and looked up by scanning them: unlike a map with
+ * boxed keys, getting and putting months doesn't allocate.
+ */
+final class MonthCache<V> {
+  private final int[] keys;
+  private final Object[] months;
+  /** When each slot was last used, or 0 if it's empty. */
+  private final long[] lastUsed;
+  private long useCount;
+  private int size;
+
+  MonthCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+    }
+    keys = new int[maxSize];
+    months = new Object[maxSize];
+    lastUsed = new long[maxSize];
+  }
+
+  /** Returns the month for {@code key}, or null if it hasn't been built or was evicted. */
+  @SuppressWarnings("unchecked")
+  V get(int key) {
+    int slot = indexOf(key);
+    if (slot == -1) {
+      return null;
+    }
+    lastUsed[slot] = ++useCount;
+    return (V) months[slot];
+  }
+
+  void put(int key, V month) {
+    int slot = indexOf(key);
+    if (slot == -1) {
+      slot = 0;
+      for (int i = 1; i < lastUsed.length; i++) {
+        if (lastUsed[i] < lastUsed[slot]) {
+          slot = i;
+        }
+      }
+      if (lastUsed[slot] == 0) {
+        size++;
+      }
+      keys[slot] = key;
+    }
+    months[slot] = month;
+    lastUsed[slot] = ++useCount;
+  }
+
+  void clear() {
+    Arrays.fill(months, null);
+    Arrays.fill(lastUsed, 0);
+    size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private int indexOf(int key) {
+    for (int i = 0; i < keys.length; i++) {
+      if (lastUsed[i] != 0 && keys[i] == key) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
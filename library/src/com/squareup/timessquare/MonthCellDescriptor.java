@@ -3,6 +3,7 @@
 package com.squareup.timessquare;
 
 import java.util.Date;
+import java.util.TimeZone;
 
 /** Describes the state of a particular date cell in a {@link MonthView}. */
 public class MonthCellDescriptor {
@@ -10,7 +11,8 @@ public class MonthCellDescriptor {
     NONE, FIRST, MIDDLE, LAST
   }
 
-  private final Date date;
+  private final int day;
+  private final TimeZone timeZone;
   private final int value;
   private final boolean isCurrentMonth;
   private boolean isSelected;
@@ -19,9 +21,10 @@ public class MonthCellDescriptor {
   private boolean isHighlighted;
   private RangeState rangeState;
 
-  MonthCellDescriptor(Date date, boolean currentMonth, boolean selectable, boolean selected,
-      boolean today, boolean highlighted, int value, RangeState rangeState) {
-    this.date = date;
+  MonthCellDescriptor(int day, TimeZone timeZone, boolean currentMonth, boolean selectable,
+      boolean selected, boolean today, boolean highlighted, int value, RangeState rangeState) {
+    this.day = day;
+    this.timeZone = timeZone;
     isCurrentMonth = currentMonth;
     isSelectable = selectable;
     isHighlighted = highlighted;
@@ -31,8 +34,17 @@ public class MonthCellDescriptor {
     this.rangeState = rangeState;
   }
 
+  /**
+   * Returns a new {@link Date} for the start of this cell's day in the time zone of its calendar,
+   * like the dates the calendar returns.
+   */
   public Date getDate() {
-    return date;
+    return CalendarDays.toDate(day, timeZone);
+  }
+
+  /** Returns this cell's day as a {@link CalendarDays} epoch day. */
+  int getDay() {
+    return day;
   }
 
   public boolean isCurrentMonth() {
@@ -78,7 +90,7 @@ public class MonthCellDescriptor {
   @Override public String toString() {
     return "MonthCellDescriptor{"
         + "date="
-        + date
+        + getDate()
         + ", value="
         + value
         + ", isCurrentMonth="
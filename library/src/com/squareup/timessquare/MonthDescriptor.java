@@ -7,6 +7,7 @@ public class MonthDescriptor {
   private final int month;
   private final int year;
   private final Date date;
+  private final int firstDay;
   private String label;
 
   public MonthDescriptor(int month, int year, Date date, String label) {
@@ -14,6 +15,7 @@ public class MonthDescriptor {
     this.year = year;
     this.date = date;
     this.label = label;
+    firstDay = CalendarDays.of(year, month, 1);
   }
 
   public int getMonth() {
@@ -28,6 +30,16 @@ public class MonthDescriptor {
     return date;
   }
 
+  /** Returns the first day of this month as a {@link CalendarDays} epoch day. */
+  int getFirstDay() {
+    return firstDay;
+  }
+
+  /** Returns the number of days in this month. */
+  int getLength() {
+    return CalendarDays.daysInMonth(year, month);
+  }
+
   public String getLabel() {
     return label;
   }
@@ -0,0 +1,296 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import android.content.Context;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.widget.Scroller;
+
+/**
+ * Pages horizontally between three views: the shown page and its previous and next neighbours,
+ * which are laid out offscreen on either side.  Neighbours are bound before they're paged to, so a
+ * swipe only scrolls the pager and doesn't bind anything.  Once it settles, the page left behind
+ * is moved to the far side to be bound to the new neighbour.
+ * <p>
+ * Pages that aren't {@link #VISIBLE} aren't ready yet and can't be paged to.  The pager is as tall
+ * as the shown page.
+ */
+final class MonthPager extends ViewGroup {
+  interface Listener {
+    /**
+     * Called once the page in {@code direction}, -1 for the previous one and 1 for the next, is
+     * the shown page.  The page that was shown until then is its neighbour on the other side.
+     */
+    void onPageChanged(int direction);
+  }
+
+  private static final int PREVIOUS = 0;
+  private static final int CURRENT = 1;
+  private static final int NEXT = 2;
+  private static final int SETTLE_DURATION_MS = 250;
+
+  /** Pages in the order they're laid out. */
+  private final View[] pages = new View[3];
+  private final Scroller scroller;
+  private final int touchSlop;
+  private final int minimumFlingVelocity;
+  private final int maximumFlingVelocity;
+  private Listener listener;
+
+  private VelocityTracker velocityTracker;
+  private float downX;
+  private float downY;
+  private boolean dragging;
+  private boolean settling;
+  /** The direction the pager is settling towards, or 0 if it's going back to the shown page. */
+  private int settleDirection;
+
+  MonthPager(Context context) {
+    super(context);
+    scroller = new Scroller(context);
+    ViewConfiguration configuration = ViewConfiguration.get(context);
+    touchSlop = configuration.getScaledPagingTouchSlop();
+    minimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+    maximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+  }
+
+  void setPages(View previous, View current, View next) {
+    removeAllViews();
+    pages[PREVIOUS] = previous;
+    pages[CURRENT] = current;
+    pages[NEXT] = next;
+    for (View page : pages) {
+      addView(page);
+    }
+  }
+
+  /** Returns the shown page for 0, or its neighbour in {@code direction}. */
+  View getPage(int direction) {
+    return pages[CURRENT + direction];
+  }
+
+  void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  /** Whether the page in {@code direction} is ready to be shown. */
+  boolean canShowPage(int direction) {
+    return getPage(direction).getVisibility() == VISIBLE;
+  }
+
+  /** Shows the page in {@code direction} right away, without scrolling. */
+  void showPage(int direction) {
+    finishSettling();
+    if (canShowPage(direction)) {
+      rotate(direction);
+    }
+  }
+
+  @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    int width = MeasureSpec.getSize(widthMeasureSpec);
+    int childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY);
+    int childHeightMeasureSpec =
+        getChildMeasureSpec(heightMeasureSpec, 0, LayoutParams.WRAP_CONTENT);
+    for (View page : pages) {
+      if (page != null) {
+        page.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+      }
+    }
+    View current = pages[CURRENT];
+    int height = current == null ? 0 : current.getMeasuredHeight();
+    setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+  }
+
+  @Override protected void onLayout(boolean changed, int l, int t, int r, int b) {
+    layoutPages();
+    if (!dragging && !settling) {
+      scrollTo(getWidth(), 0);
+    }
+  }
+
+  private void layoutPages() {
+    int width = getWidth();
+    for (int i = 0; i < pages.length; i++) {
+      View page = pages[i];
+      if (page != null) {
+        page.layout(i * width, 0, (i + 1) * width, page.getMeasuredHeight());
+      }
+    }
+  }
+
+  @Override public boolean onInterceptTouchEvent(MotionEvent event) {
+    switch (event.getAction() & MotionEvent.ACTION_MASK) {
+      case MotionEvent.ACTION_DOWN:
+        startGesture(event);
+        break;
+      case MotionEvent.ACTION_MOVE:
+        trackVelocity(event);
+        checkDrag(event);
+        break;
+      case MotionEvent.ACTION_UP:
+      case MotionEvent.ACTION_CANCEL:
+        endGesture();
+        break;
+    }
+    return dragging;
+  }
+
+  @Override public boolean onTouchEvent(MotionEvent event) {
+    switch (event.getAction() & MotionEvent.ACTION_MASK) {
+      case MotionEvent.ACTION_DOWN:
+        // Nothing under the finger took the gesture.
+        startGesture(event);
+        break;
+      case MotionEvent.ACTION_MOVE:
+        trackVelocity(event);
+        checkDrag(event);
+        if (dragging) {
+          scrollTo(getWidth() + clampOffset(downX - event.getX()), 0);
+        }
+        break;
+      case MotionEvent.ACTION_UP:
+        trackVelocity(event);
+        if (dragging) {
+          velocityTracker.computeCurrentVelocity(1000, maximumFlingVelocity);
+          settle(pageDirection(downX - event.getX(), velocityTracker.getXVelocity()));
+        }
+        endGesture();
+        break;
+      case MotionEvent.ACTION_CANCEL:
+        if (dragging) {
+          settle(0);
+        }
+        endGesture();
+        break;
+    }
+    return true;
+  }
+
+  private void startGesture(MotionEvent event) {
+    finishSettling();
+    downX = event.getX();
+    downY = event.getY();
+    dragging = false;
+    if (velocityTracker == null) {
+      velocityTracker = VelocityTracker.obtain();
+    } else {
+      velocityTracker.clear();
+    }
+    velocityTracker.addMovement(event);
+  }
+
+  /** Starts dragging once the finger has moved far enough sideways. */
+  private void checkDrag(MotionEvent event) {
+    if (!dragging) {
+      float dx = Math.abs(event.getX() - downX);
+      if (dx > touchSlop && dx > Math.abs(event.getY() - downY)) {
+        dragging = true;
+        if (getParent() != null) {
+          getParent().requestDisallowInterceptTouchEvent(true);
+        }
+      }
+    }
+  }
+
+  private void trackVelocity(MotionEvent event) {
+    if (velocityTracker != null) {
+      velocityTracker.addMovement(event);
+    }
+  }
+
+  private void endGesture() {
+    dragging = false;
+    if (velocityTracker != null) {
+      velocityTracker.recycle();
+      velocityTracker = null;
+    }
+  }
+
+  /** Limits a scroll of {@code offset} pixels to one page, towards pages that are ready. */
+  private int clampOffset(float offset) {
+    int width = getWidth();
+    if (offset < 0) {
+      return canShowPage(-1) ? (int) Math.max(offset, -width) : 0;
+    }
+    return canShowPage(1) ? (int) Math.min(offset, width) : 0;
+  }
+
+  /** Returns the page to settle on after a drag of {@code offset} pixels left. */
+  private int pageDirection(float offset, float velocity) {
+    int direction;
+    if (Math.abs(velocity) > minimumFlingVelocity) {
+      direction = velocity < 0 ? 1 : -1;
+    } else if (Math.abs(offset) > getWidth() / 2) {
+      direction = offset > 0 ? 1 : -1;
+    } else {
+      direction = 0;
+    }
+    return direction != 0 && canShowPage(direction) ? direction : 0;
+  }
+
+  private void settle(int direction) {
+    settling = true;
+    settleDirection = direction;
+    int scrollX = getScrollX();
+    scroller.startScroll(scrollX, 0, (CURRENT + direction) * getWidth() - scrollX, 0,
+        SETTLE_DURATION_MS);
+    invalidate();
+  }
+
+  @Override public void computeScroll() {
+    if (!settling) {
+      return;
+    }
+    if (scroller.computeScrollOffset()) {
+      scrollTo(scroller.getCurrX(), 0);
+      invalidate();
+    } else {
+      finishSettling();
+    }
+  }
+
+  /** Jumps to the end of a settling scroll. */
+  private void finishSettling() {
+    if (!settling) {
+      return;
+    }
+    settling = false;
+    scroller.abortAnimation();
+    if (settleDirection != 0) {
+      rotate(settleDirection);
+    } else {
+      scrollTo(getWidth(), 0);
+    }
+  }
+
+  /**
+   * Makes the page in {@code direction} the shown one, and moves the page on the other side to
+   * this side.  Pages keep their size, so they're moved without a layout pass unless the pager's
+   * height changes.
+   */
+  private void rotate(int direction) {
+    View previous = pages[PREVIOUS];
+    View current = pages[CURRENT];
+    View next = pages[NEXT];
+    if (direction > 0) {
+      pages[PREVIOUS] = current;
+      pages[CURRENT] = next;
+      pages[NEXT] = previous;
+    } else {
+      pages[PREVIOUS] = next;
+      pages[CURRENT] = previous;
+      pages[NEXT] = current;
+    }
+    layoutPages();
+    scrollTo(getWidth(), 0);
+    if (pages[CURRENT].getMeasuredHeight() != getMeasuredHeight()) {
+      requestLayout();
+    }
+    if (listener != null) {
+      listener.onPageChanged(direction);
+    }
+  }
+}
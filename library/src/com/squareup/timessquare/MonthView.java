@@ -6,6 +6,7 @@ import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.TextView;
@@ -14,29 +15,42 @@ import java.util.Calendar;
 import java.util.List;
 
 public class MonthView extends LinearLayout implements View.OnClickListener {
+  /** Labels of the days of the month, shared so that binding cells doesn't build strings. */
+  private static final String[] DAY_LABELS = new String[32];
+
+  static {
+    for (int i = 1; i < DAY_LABELS.length; i++) {
+      DAY_LABELS[i] = Integer.toString(i);
+    }
+  }
+
     ImageButton mPrev;
     ImageButton mNext;
   TextView title;
   CalendarGridView grid;
   private Listener listener;
-
-    private boolean mOnlyWeek = false;
+    /** Kept by {@link #setOnlyWeek} when the view isn't in a {@link CollapseCalendarView}. */
+    private boolean mOnlyWeek;
 
   public static MonthView create(ViewGroup parent, LayoutInflater inflater,
       DateFormat weekdayNameFormat, Listener listener, Calendar today) {
-    final MonthView view = (MonthView) inflater.inflate(R.layout.month, parent, false);
+    return create(parent, inflater,
+        CalendarFormats.weekdayNames(weekdayNameFormat, today.getFirstDayOfWeek()), listener);
+  }
 
-    final int originalDayOfWeek = today.get(Calendar.DAY_OF_WEEK);
+  /** Creates a month view whose header shows {@code weekdayNames}, which it doesn't modify. */
+  static MonthView create(ViewGroup parent, LayoutInflater inflater, String[] weekdayNames,
+      Listener listener) {
+    long start = CalendarMetrics.start();
+    final MonthView view = (MonthView) inflater.inflate(R.layout.month, parent, false);
 
-    int firstDayOfWeek = today.getFirstDayOfWeek();
     final CalendarRowView headerRow = (CalendarRowView) view.grid.getChildAt(1);
     for (int offset = 0; offset < 7; offset++) {
-      today.set(Calendar.DAY_OF_WEEK, firstDayOfWeek + offset);
       final TextView textView = (TextView) headerRow.getChildAt(offset);
-      textView.setText(weekdayNameFormat.format(today.getTime()));
+      textView.setText(weekdayNames[offset]);
     }
-    today.set(Calendar.DAY_OF_WEEK, originalDayOfWeek);
     view.listener = listener;
+    CalendarMetrics.end(CalendarMetrics.Event.INFLATE, start, 1);
     return view;
   }
 
@@ -44,13 +58,6 @@ public class MonthView extends LinearLayout implements View.OnClickListener {
     super(context, attrs);
   }
 
-    public void setOnlyWeek(boolean onlyWeek) {
-        if(mOnlyWeek != onlyWeek) {
-            mOnlyWeek = onlyWeek;
-
-        }
-    }
-
     @Override protected void onFinishInflate() {
     super.onFinishInflate();
       mPrev = (ImageButton) findViewById(R.id.prev);
@@ -64,39 +71,131 @@ public class MonthView extends LinearLayout implements View.OnClickListener {
 
   public void init(MonthDescriptor month, List<List<MonthCellDescriptor>> cells,
       boolean displayOnly) {
-    Logr.d("Initializing MonthView (%d) for %s", System.identityHashCode(this), month);
-    long start = System.currentTimeMillis();
-    title.setText(month.getLabel());
+    long start = CalendarMetrics.start();
+    setTitle(month.getLabel());
 
-    final int numRows = 3;
-    grid.setNumRows(numRows);
+    // A month spans four to six weeks, and a collapsed calendar shows a single one.
+    final int numRows = cells.size();
     for (int i = 0; i < 6; i++) {
       CalendarRowView weekRow = (CalendarRowView) grid.getChildAt(i + 2);
       weekRow.setListener(listener);
       if (i < numRows) {
-        weekRow.setVisibility(VISIBLE);
+        setVisibilityIfChanged(weekRow, VISIBLE);
         List<MonthCellDescriptor> week = cells.get(i);
         for (int c = 0; c < week.size(); c++) {
           MonthCellDescriptor cell = week.get(c);
           CalendarCellView cellView = (CalendarCellView) weekRow.getChildAt(c);
 
-          cellView.setText(Integer.toString(cell.getValue()));
-          cellView.setEnabled(cell.isCurrentMonth());
+          // Only touch what changed: setText() re-lays out the cell even for the same label, and
+          // bind() skips a state the cell already shows.
+          MonthCellDescriptor boundCell = (MonthCellDescriptor) cellView.getTag();
+          if (boundCell == null || boundCell.getValue() != cell.getValue()) {
+            cellView.setText(dayLabel(cell.getValue()));
+          }
+          if (cellView.isEnabled() != cell.isCurrentMonth()) {
+            cellView.setEnabled(cell.isCurrentMonth());
+          }
           cellView.setClickable(!displayOnly);
 
-          cellView.setSelectable(cell.isSelectable());
-          cellView.setSelected(cell.isSelected());
-          cellView.setCurrentMonth(cell.isCurrentMonth());
-          cellView.setToday(cell.isToday());
-          cellView.setRangeState(cell.getRangeState());
-          cellView.setHighlighted(cell.isHighlighted());
+          // Days inside a range are drawn selected, but only its ends are selected cells.
+          boolean selected = cell.isSelected()
+              || cell.getRangeState() == MonthCellDescriptor.RangeState.MIDDLE;
+          cellView.bind(CalendarCellView.stateOf(cell, selected));
           cellView.setTag(cell);
         }
+      } else {
+        setVisibilityIfChanged(weekRow, GONE);
+      }
+    }
+    CalendarMetrics.end(CalendarMetrics.Event.BIND, start, numRows * 7);
+  }
+
+  /**
+   * Shows {@code month} with {@code numRows} blank weeks, while its cells aren't ready.  The
+   * placeholder cells can't be clicked.
+   */
+  void initPlaceholder(MonthDescriptor month, int numRows) {
+    title.setText(month.getLabel());
+    for (int i = 0; i < 6; i++) {
+      CalendarRowView weekRow = (CalendarRowView) grid.getChildAt(i + 2);
+      if (i < numRows) {
+        weekRow.setVisibility(VISIBLE);
+        for (int c = 0; c < 7; c++) {
+          CalendarCellView cellView = (CalendarCellView) weekRow.getChildAt(c);
+          cellView.setText(null);
+          cellView.setEnabled(false);
+          cellView.setClickable(false);
+          cellView.bind(0);
+          cellView.setTag(null);
+        }
       } else {
         weekRow.setVisibility(GONE);
       }
     }
-    Logr.d("MonthView.init took %d ms", System.currentTimeMillis() - start);
+  }
+
+    /**
+     * Collapses the {@link CollapseCalendarView} showing this view to a single week.
+     *
+     * @deprecated Use {@link CollapseCalendarView#setCollapsed(boolean)}.
+     */
+    @Deprecated
+    public void setOnlyWeek(boolean onlyWeek) {
+        CollapseCalendarView calendar = findCollapseCalendarView();
+        if (calendar != null) {
+            calendar.setCollapsed(onlyWeek);
+        } else {
+            mOnlyWeek = onlyWeek;
+        }
+    }
+
+    /**
+     * Returns whether the {@link CollapseCalendarView} showing this view is collapsed.
+     *
+     * @deprecated Use {@link CollapseCalendarView#isCollapsed()}.
+     */
+    @Deprecated
+    public boolean getOnlyWeek() {
+        CollapseCalendarView calendar = findCollapseCalendarView();
+        return calendar != null ? calendar.isCollapsed() : mOnlyWeek;
+    }
+
+    private CollapseCalendarView findCollapseCalendarView() {
+        for (ViewParent parent = getParent(); parent != null; parent = parent.getParent()) {
+            if (parent instanceof CollapseCalendarView) {
+                return (CollapseCalendarView) parent;
+            }
+        }
+        return null;
+    }
+
+  /** Sets the listener of a view taken from a {@link MonthViewPool}, or clears it with null. */
+  void setListener(Listener listener) {
+    this.listener = listener;
+    for (int i = 0; i < 6; i++) {
+      ((CalendarRowView) grid.getChildAt(i + 2)).setListener(listener);
+    }
+  }
+
+  /**
+   * Sets the title unless it's already shown.  Like the guards of {@link #init}, this keeps
+   * rebinding a recycled view from allocating: the framework does work even for unchanged values.
+   */
+  private void setTitle(String label) {
+    if (!label.contentEquals(title.getText())) {
+      title.setText(label);
+    }
+  }
+
+  private static void setVisibilityIfChanged(View view, int visibility) {
+    if (view.getVisibility() != visibility) {
+      view.setVisibility(visibility);
+    }
+  }
+
+  /** Returns the shared label of a day of the month. */
+  static String dayLabel(int value) {
+    return value > 0 && value < DAY_LABELS.length ? DAY_LABELS[value] : Integer.toString(value);
   }
 
     @Override
@@ -113,10 +212,6 @@ public class MonthView extends LinearLayout implements View.OnClickListener {
         }
     }
 
-    public boolean getOnlyWeek() {
-        return mOnlyWeek;
-    }
-
     public interface Listener {
     void handleClick(MonthCellDescriptor cell);
       void prevClick();
@@ -0,0 +1,94 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import android.view.View;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detached month views that {@link CalendarPickerView}s can share, see {@link
+ * CalendarPickerView#setMonthViewPool(MonthViewPool)}.  A picker puts its month views here when it
+ * is detached from its window, and takes views from here before inflating new ones.  When the pool
+ * is empty, it takes the {@link CalendarPickerView#setPrewarmMonthViews(int) prewarmed} views that
+ * the attached pickers haven't shown yet: a picker shown in a dialog over a prewarmed inline picker
+ * then binds the inline picker's spare views instead of inflating new ones.
+ * <p>
+ * Views are kept per locale, first day of the week and kind of month view, since their headers
+ * differ.  They hold on to the context they were created with, so a pool should only be shared by
+ * the pickers of a single activity.  Pools must only be used from the main thread.
+ */
+public final class MonthViewPool {
+  private static final int DEFAULT_MAX_VIEWS = 6;
+
+  private final int maxViews;
+  private final Map<CalendarFormats, List<View>> monthViews =
+      new HashMap<CalendarFormats, List<View>>();
+  private final Map<CalendarFormats, List<View>> flatMonthViews =
+      new HashMap<CalendarFormats, List<View>>();
+  /** The attached pickers that use this pool. */
+  private final List<CalendarPickerView> pickers = new ArrayList<CalendarPickerView>();
+
+  public MonthViewPool() {
+    this(DEFAULT_MAX_VIEWS);
+  }
+
+  /** @param maxViews how many views of each locale and kind are kept. */
+  public MonthViewPool(int maxViews) {
+    if (maxViews <= 0) {
+      throw new IllegalArgumentException("maxViews must be positive: " + maxViews);
+    }
+    this.maxViews = maxViews;
+  }
+
+  /**
+   * Returns a pooled view created with {@code formats}, else a spare prewarmed view of an attached
+   * picker other than {@code requester}, or null if there's none.
+   */
+  View acquire(CalendarFormats formats, boolean flat, CalendarPickerView requester) {
+    List<View> views = (flat ? flatMonthViews : monthViews).get(formats);
+    if (views != null && !views.isEmpty()) {
+      return views.remove(views.size() - 1);
+    }
+    for (int i = 0; i < pickers.size(); i++) {
+      CalendarPickerView picker = pickers.get(i);
+      View view = picker == requester ? null : picker.releasePrewarmedView(formats, flat);
+      if (view != null) {
+        return view;
+      }
+    }
+    return null;
+  }
+
+  /** Lets the pool take the spare views of {@code picker}, which was attached to its window. */
+  void register(CalendarPickerView picker) {
+    if (!pickers.contains(picker)) {
+      pickers.add(picker);
+    }
+  }
+
+  /** Stops taking the views of {@code picker}, which was detached from its window. */
+  void unregister(CalendarPickerView picker) {
+    pickers.remove(picker);
+  }
+
+  /** Adds a detached view created with {@code formats}, unless the pool is full. */
+  void release(CalendarFormats formats, boolean flat, View view) {
+    Map<CalendarFormats, List<View>> pool = flat ? flatMonthViews : monthViews;
+    List<View> views = pool.get(formats);
+    if (views == null) {
+      views = new ArrayList<View>(maxViews);
+      pool.put(formats, views);
+    }
+    if (views.size() < maxViews) {
+      views.add(view);
+    }
+  }
+
+  /** Drops every pooled view.  The prewarmed views of attached pickers are theirs to keep. */
+  public void clear() {
+    monthViews.clear();
+    flatMonthViews.clear();
+  }
+}
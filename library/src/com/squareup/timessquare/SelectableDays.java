@@ -0,0 +1,51 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Arrays;
+
+/**
+ * Remembers, per month, which days a {@link CalendarPickerView.DateSelectableFilter} accepted so
+ * that the filter runs once per day rather than every time a month's cells are built.  Each month
+ * is a bitmask where bit {@code n - 1} is set if day {@code n} of the month is selectable.  Masks
+ * may be computed on a background thread, so access is synchronized.
+ * <p>
+ * Months are stored in a ring of {@code capacity} slots: a month evicts the one {@code capacity}
+ * positions away, so the masks kept always form a window around the months last put.
+ */
+final class SelectableDays {
+  private final int[] masks;
+  /** Month index held by each slot, or -1. */
+  private final int[] indexes;
+
+  SelectableDays(int capacity) {
+    masks = new int[capacity];
+    indexes = new int[capacity];
+    Arrays.fill(indexes, -1);
+  }
+
+  int capacity() {
+    return indexes.length;
+  }
+
+  synchronized boolean isKnown(int monthIndex) {
+    return indexes.length > 0 && indexes[monthIndex % indexes.length] == monthIndex;
+  }
+
+  /** Returns the mask of {@code monthIndex}, which must be {@link #isKnown known}. */
+  synchronized int get(int monthIndex) {
+    if (!isKnown(monthIndex)) {
+      throw new IllegalStateException("Month " + monthIndex + " hasn't been computed.");
+    }
+    return masks[monthIndex % masks.length];
+  }
+
+  synchronized void put(int monthIndex, int mask) {
+    int slot = monthIndex % indexes.length;
+    masks[slot] = mask;
+    indexes[slot] = monthIndex;
+  }
+
+  static boolean contains(int mask, int dayOfMonth) {
+    return (mask & (1 << (dayOfMonth - 1))) != 0;
+  }
+}
@@ -0,0 +1,36 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.lang.management.ManagementFactory;
+
+/** Counts what the test thread allocates, on a HotSpot JVM. */
+final class Allocations {
+  private static final int RUNS = 3;
+
+  private Allocations() {
+    // No instances.
+  }
+
+  /** Returns how many bytes this thread allocated so far. */
+  static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Returns the fewest bytes {@code work} allocates over a few runs, less what reading the counter
+   * allocates.  Warm it up first, so that class loading and lazy initialization don't count; the
+   * fewest bytes leave out what the JVM and Robolectric sometimes allocate on the test thread.
+   */
+  static long measure(Runnable work) {
+    long fewest = Long.MAX_VALUE;
+    for (int i = 0; i < RUNS; i++) {
+      long before = allocatedBytes();
+      long overhead = allocatedBytes() - before;
+      before = allocatedBytes();
+      work.run();
+      fewest = Math.min(fewest, allocatedBytes() - before - overhead);
+    }
+    return fewest;
+  }
+}
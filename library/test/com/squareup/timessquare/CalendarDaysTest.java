@@ -0,0 +1,88 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import org.junit.Test;
+
+import static java.util.Calendar.DAY_OF_MONTH;
+import static java.util.Calendar.DAY_OF_WEEK;
+import static java.util.Calendar.FEBRUARY;
+import static java.util.Calendar.JANUARY;
+import static java.util.Calendar.MARCH;
+import static java.util.Calendar.MONTH;
+import static java.util.Calendar.NOVEMBER;
+import static java.util.Calendar.THURSDAY;
+import static java.util.Calendar.YEAR;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class CalendarDaysTest {
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+  @Test
+  public void testEpoch() throws Exception {
+    assertThat(CalendarDays.of(1970, JANUARY, 1)).isEqualTo(0);
+    assertThat(CalendarDays.dayOfWeek(0)).isEqualTo(THURSDAY);
+    assertThat(CalendarDays.of(1969, 11, 31)).isEqualTo(-1);
+  }
+
+  @Test
+  public void testMatchesGregorianCalendar() throws Exception {
+    Calendar cal = new GregorianCalendar(UTC);
+    cal.clear();
+    cal.set(1900, JANUARY, 1);
+    for (int i = 0; i < 365 * 250; i++) {
+      int day = CalendarDays.fromCalendar(cal);
+      int year = cal.get(YEAR);
+      int month = cal.get(MONTH);
+      int dayOfMonth = cal.get(DAY_OF_MONTH);
+
+      assertThat(CalendarDays.of(year, month, dayOfMonth)).isEqualTo(day);
+      assertThat(CalendarDays.year(day)).isEqualTo(year);
+      assertThat(CalendarDays.month(day)).isEqualTo(month);
+      assertThat(CalendarDays.dayOfMonth(day)).isEqualTo(dayOfMonth);
+      assertThat(CalendarDays.dayOfWeek(day)).isEqualTo(cal.get(DAY_OF_WEEK));
+      assertThat(CalendarDays.daysInMonth(year, month)) //
+          .isEqualTo(cal.getActualMaximum(DAY_OF_MONTH));
+      cal.add(DAY_OF_MONTH, 1);
+    }
+  }
+
+  @Test
+  public void testLeapYears() throws Exception {
+    assertThat(CalendarDays.daysInMonth(2000, FEBRUARY)).isEqualTo(29);
+    assertThat(CalendarDays.daysInMonth(2100, FEBRUARY)).isEqualTo(28);
+    assertThat(CalendarDays.daysInMonth(2012, FEBRUARY)).isEqualTo(29);
+    assertThat(CalendarDays.of(2012, MARCH, 1) - CalendarDays.of(2012, FEBRUARY, 1)).isEqualTo(29);
+  }
+
+  @Test
+  public void testEpochMonths() throws Exception {
+    int day = CalendarDays.of(2012, NOVEMBER, 16);
+    int epochMonth = CalendarDays.epochMonth(day);
+    assertThat(epochMonth).isEqualTo(CalendarDays.epochMonth(2012, NOVEMBER));
+    assertThat(CalendarDays.firstDayOfEpochMonth(epochMonth)) //
+        .isEqualTo(CalendarDays.of(2012, NOVEMBER, 1));
+    assertThat(CalendarDays.firstDayOfEpochMonth(epochMonth + 2)) //
+        .isEqualTo(CalendarDays.of(2013, JANUARY, 1));
+  }
+
+  @Test
+  public void testMillisMatchCalendarInEveryTimeZone() throws Exception {
+    for (String id : TimeZone.getAvailableIDs()) {
+      TimeZone timeZone = TimeZone.getTimeZone(id);
+      Calendar cal = new GregorianCalendar(timeZone);
+      cal.clear();
+      cal.set(2012, JANUARY, 1);
+      for (int i = 0; i < 2 * 365; i++) {
+        int day = CalendarDays.fromCalendar(cal);
+        CalendarDays.setMidnight(cal);
+        long millis = CalendarDays.toMillis(day, timeZone);
+        assertThat(millis).isEqualTo(cal.getTimeInMillis());
+        assertThat(CalendarDays.fromMillis(millis, timeZone)).isEqualTo(day);
+        cal.add(DAY_OF_MONTH, 1);
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.squareup.timessquare.CalendarModel.getCell;
+import static com.squareup.timessquare.CalendarPickerView.SelectionMode;
+import static com.squareup.timessquare.MonthCellDescriptor.RangeState;
+import static java.util.Calendar.JUNE;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/** Runs without Android: the model only depends on java.util. */
+public class CalendarModelTest {
+  private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("UTC");
+
+  private final List<int[]> changes = new ArrayList<int[]>();
+  private CalendarModel model;
+  private int june;
+
+  @Before
+  public void setUp() throws Exception {
+    model = new CalendarModel(4, new CalendarModel.Listener() {
+      @Override public void onDaysChanged(int firstDay, int lastDay) {
+        changes.add(new int[] { firstDay, lastDay });
+      }
+    });
+    Calendar today = Calendar.getInstance(TIME_ZONE, Locale.US);
+    today.clear();
+    today.set(2014, JUNE, 10);
+    int todayDay = CalendarDays.fromCalendar(today);
+    model.reset(today, TIME_ZONE, todayDay, todayDay + 365, 12);
+    june = CalendarDays.epochMonth(todayDay);
+  }
+
+  @Test
+  public void testSingleSelectionReplacesThePreviousOne() throws Exception {
+    List<List<MonthCellDescriptor>> cells = model.getMonthCells(june);
+    int first = CalendarDays.of(2014, JUNE, 12);
+    int second = CalendarDays.of(2014, JUNE, 20);
+
+    assertThat(model.selectDay(first, getCell(cells, first))).isTrue();
+    assertThat(model.selectDay(second, getCell(cells, second))).isTrue();
+    assertThat(model.selectedDays.size()).isEqualTo(1);
+    assertThat(model.selectedDays.first()).isEqualTo(second);
+    assertThat(getCell(cells, first).isSelected()).isFalse();
+    assertThat(getCell(cells, second).isSelected()).isTrue();
+    assertThat(model.getSelectedDates()).hasSize(1);
+  }
+
+  @Test
+  public void testMultipleSelectionTogglesDays() throws Exception {
+    model.setSelectionMode(SelectionMode.MULTIPLE);
+    List<List<MonthCellDescriptor>> cells = model.getMonthCells(june);
+    int day = CalendarDays.of(2014, JUNE, 12);
+    MonthCellDescriptor cell = getCell(cells, day);
+
+    assertThat(model.selectDay(day, cell)).isTrue();
+    assertThat(cell.isSelected()).isTrue();
+    changes.clear();
+    assertThat(model.selectDay(day, cell)).isFalse();
+    assertThat(cell.isSelected()).isFalse();
+    assertThat(model.selectedDays.isEmpty()).isTrue();
+    assertThat(changes).hasSize(1);
+    assertThat(changes.get(0)).isEqualTo(new int[] { day, day });
+  }
+
+  @Test
+  public void testRangeStatesFollowTheSelection() throws Exception {
+    model.setSelectionMode(SelectionMode.RANGE);
+    List<List<MonthCellDescriptor>> juneCells = model.getMonthCells(june);
+    int start = CalendarDays.of(2014, JUNE, 25);
+    int end = CalendarDays.of(2014, JUNE + 1, 5);
+    model.selectDay(start, getCell(juneCells, start));
+    changes.clear();
+    // A cell that isn't cached, like the one of a month view that went offscreen.
+    model.selectDay(end, getCell(model.buildMonthCells(june + 1), end));
+
+    assertThat(getCell(juneCells, start).getRangeState()).isEqualTo(RangeState.FIRST);
+    assertThat(getCell(juneCells, start + 1).getRangeState()).isEqualTo(RangeState.MIDDLE);
+    // The range is reported as a whole.
+    assertThat(changes.get(changes.size() - 1)).isEqualTo(new int[] { start, end });
+
+    // July wasn't built yet: it gets the range once it is.
+    List<List<MonthCellDescriptor>> julyCells = model.getMonthCells(june + 1);
+    assertThat(getCell(julyCells, end).getRangeState()).isEqualTo(RangeState.LAST);
+    assertThat(getCell(julyCells, end + 1).getRangeState()).isEqualTo(RangeState.NONE);
+    assertThat(model.getSelectedDates()).hasSize(end - start + 1);
+  }
+
+  @Test
+  public void testDaysOutsideTheBoundsAreNotSelectable() throws Exception {
+    int today = CalendarDays.fromCalendar(model.getToday());
+    assertThat(model.isDateSelectable(today - 1)).isFalse();
+    assertThat(model.isDateSelectable(today)).isTrue();
+
+    model.setFilter(new CalendarPickerView.DateSelectableFilter() {
+      @Override public boolean isDateSelectable(Date date) {
+        return false;
+      }
+    });
+    assertThat(model.isDateSelectable(today)).isFalse();
+    assertThat(getCell(model.getMonthCells(june), today).isSelectable()).isFalse();
+  }
+
+  @Test
+  public void testCellDatesAreInTheModelsTimeZone() throws Exception {
+    // A zone whose midnight is another instant than the default zone's.
+    TimeZone timeZone = TimeZone.getTimeZone(
+        TimeZone.getDefault().getRawOffset() == 0 ? "Pacific/Kiritimati" : "UTC");
+    Calendar today = Calendar.getInstance(timeZone, Locale.US);
+    today.clear();
+    today.set(2014, JUNE, 10);
+    int todayDay = CalendarDays.fromCalendar(today);
+    model.reset(today, timeZone, todayDay, todayDay + 365, 12);
+    MonthCellDescriptor cell = getCell(model.getMonthCells(june), todayDay);
+
+    model.selectDay(todayDay, cell);
+    assertThat(cell.getDate()).isEqualTo(today.getTime());
+    assertThat(cell.getDate()).isEqualTo(model.getSelectedDates().get(0));
+  }
+
+  @Test
+  public void testWeekCellsOfAnotherMonthAreNotCurrent() throws Exception {
+    // Sunday June 29th to Saturday July 5th 2014 mostly belongs to July.
+    int weekStart = CalendarDays.of(2014, JUNE, 29);
+    List<MonthCellDescriptor> week = model.buildWeek(weekStart);
+    for (int i = 0; i < 7; i++) {
+      MonthCellDescriptor cell = week.get(i);
+      assertThat(cell.isCurrentMonth()).isEqualTo(i >= 2);
+      assertThat(cell.isSelectable()).isEqualTo(i >= 2);
+    }
+  }
+
+  @Test
+  public void testPutMonthCellsKeepsTheCachedOnes() throws Exception {
+    List<List<MonthCellDescriptor>> cells = model.getMonthCells(june + 1);
+    List<List<MonthCellDescriptor>> rebuilt = model.buildMonthCells(june + 1);
+    model.putMonthCells(june + 1, rebuilt);
+    assertThat(model.getCachedMonthCells(june + 1)).isSameAs(cells);
+  }
+}
@@ -0,0 +1,342 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import android.app.Activity;
+import android.content.Context;
+import android.database.DataSetObserver;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.widget.ListAdapter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static com.squareup.timessquare.CalendarPickerView.SelectionMode;
+import static java.util.Calendar.NOVEMBER;
+import static java.util.Calendar.YEAR;
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+
+/**
+ * Counts the work a picker does to show, scroll and select months, and fails when it does more
+ * than the baselines recorded in {@link #BASELINES}, a resource next to this class.  After a change
+ * that's meant to do more work, record new baselines by running the suite with
+ * {@code -Dtimessquare.recordBaselines=<file>}, and copy that file over the resource.
+ * <p>
+ * Each scenario runs twice on a new picker and only the second run is counted, so that class
+ * loading and the caches shared between pickers don't count.  The second picker takes its month
+ * views from those of the first, so inflations only count when more views are needed than before.
+ * Allocations aren't counted: most of them are Robolectric's, and they change from one run to the
+ * next.  {@link MonthViewAllocationTest} checks those of rebinding month views instead.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CalendarPickerViewPerformanceTest {
+  private static final String BASELINES = "performance-baselines.properties";
+  /** Where to record new baselines, or null to check the scenarios against the current ones. */
+  private static final String RECORD_FILE = System.getProperty("timessquare.recordBaselines");
+  private static final int WIDTH = 480;
+  private static final int HEIGHT = 800;
+  private static final int SCROLLED_MONTHS = 12;
+  private static final int TAPS = 40;
+
+  /** The counts of the scenario being run. */
+  private static final Counts counts = new Counts();
+
+  private Activity activity;
+
+  private interface Scenario {
+    void run(CalendarPickerView view);
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    activity = Robolectric.buildActivity(Activity.class).create().start().resume().get();
+    LayoutInflater.from(activity).setFactory(new LayoutInflater.Factory() {
+      @Override public View onCreateView(String name, Context context, AttributeSet attrs) {
+        return CalendarCellView.class.getName().equals(name)
+            ? new CountingCellView(context, attrs) : null;
+      }
+    });
+    CalendarMetrics.attach(new CalendarMetrics() {
+      @Override public void onEvent(Event event, long durationNanos, int count) {
+        if (event == Event.INFLATE) {
+          counts.inflations++;
+        } else if (event == Event.BIND) {
+          counts.binds++;
+        }
+      }
+    });
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    CalendarMetrics.detach();
+  }
+
+  @Test
+  public void testInit() throws Exception {
+    check("init", new Scenario() {
+      @Override public void run(CalendarPickerView view) {
+        show(view, SelectionMode.SINGLE);
+      }
+    });
+  }
+
+  @Test
+  public void testScroll() throws Exception {
+    check("scroll", new Scenario() {
+      @Override public void run(CalendarPickerView view) {
+        show(view, SelectionMode.SINGLE);
+        for (int position = 1; position <= SCROLLED_MONTHS; position++) {
+          view.setSelection(position);
+          layout(view);
+        }
+      }
+    });
+  }
+
+  @Test
+  public void testTapsInSingleMode() throws Exception {
+    checkTaps(SelectionMode.SINGLE);
+  }
+
+  @Test
+  public void testTapsInMultipleMode() throws Exception {
+    checkTaps(SelectionMode.MULTIPLE);
+  }
+
+  @Test
+  public void testTapsInRangeMode() throws Exception {
+    checkTaps(SelectionMode.RANGE);
+  }
+
+  /** Taps a burst of days of the first month, laying the picker out after each tap. */
+  private void checkTaps(final SelectionMode mode) throws IOException {
+    check("taps." + mode.name().toLowerCase(Locale.US), new Scenario() {
+      @Override public void run(CalendarPickerView view) {
+        show(view, mode);
+        List<CalendarCellView> cells = selectableCells((MonthView) view.getChildAt(0));
+        assertThat(cells.size()).isGreaterThan(TAPS / 4);
+        for (int i = 0; i < TAPS; i++) {
+          // Back and forth, so that ranges grow and shrink.
+          int index = i % cells.size();
+          cells.get(i / cells.size() % 2 == 0 ? index : cells.size() - 1 - index).performClick();
+          layout(view);
+        }
+      }
+    });
+  }
+
+  /** Initializes {@code view} over a year in {@code mode} and lays it out. */
+  private static void show(CalendarPickerView view, SelectionMode mode) {
+    Calendar minDate = Calendar.getInstance(Locale.US);
+    minDate.clear();
+    minDate.set(2012, NOVEMBER, 1);
+    Calendar maxDate = (Calendar) minDate.clone();
+    maxDate.add(YEAR, 1);
+    view.init(minDate.getTime(), maxDate.getTime(), Locale.US).inMode(mode);
+    view.setAdapter(new CountingAdapter(view.getAdapter()));
+    layout(view);
+  }
+
+  private static void layout(CalendarPickerView view) {
+    view.measure(MeasureSpec.makeMeasureSpec(WIDTH, MeasureSpec.EXACTLY),
+        MeasureSpec.makeMeasureSpec(HEIGHT, MeasureSpec.EXACTLY));
+    view.layout(0, 0, WIDTH, HEIGHT);
+  }
+
+  private static List<CalendarCellView> selectableCells(MonthView monthView) {
+    List<CalendarCellView> cells = new ArrayList<CalendarCellView>();
+    for (int i = 2; i < monthView.grid.getChildCount(); i++) {
+      ViewGroup week = (ViewGroup) monthView.grid.getChildAt(i);
+      for (int c = 0; c < week.getChildCount(); c++) {
+        CalendarCellView cell = (CalendarCellView) week.getChildAt(c);
+        MonthCellDescriptor descriptor = (MonthCellDescriptor) cell.getTag();
+        if (week.getVisibility() == View.VISIBLE && descriptor != null
+            && descriptor.isSelectable()) {
+          cells.add(cell);
+        }
+      }
+    }
+    return cells;
+  }
+
+  private void check(String name, Scenario scenario) throws IOException {
+    MonthViewPool pool = new MonthViewPool();
+    CalendarPickerView warmUpView = new CalendarPickerView(activity, null);
+    warmUpView.setMonthViewPool(pool);
+    scenario.run(warmUpView);
+    warmUpView.onDetachedFromWindow();
+
+    CalendarPickerView view = new CalendarPickerView(activity, null);
+    view.setMonthViewPool(pool);
+    counts.reset();
+    scenario.run(view);
+    // Sanity checks: the scenario was counted.
+    assertThat(counts.getViews).isGreaterThan(0);
+    assertThat(counts.binds).isGreaterThan(0);
+
+    Properties measured = new Properties();
+    measured.setProperty(name + ".getView", Integer.toString(counts.getViews));
+    measured.setProperty(name + ".inflations", Integer.toString(counts.inflations));
+    measured.setProperty(name + ".binds", Integer.toString(counts.binds));
+    measured.setProperty(name + ".refreshDrawableState",
+        Integer.toString(counts.drawableStateRefreshes));
+
+    Properties baselines = loadBaselines();
+    if (RECORD_FILE != null) {
+      baselines.putAll(measured);
+      storeBaselines(baselines);
+      return;
+    }
+    StringBuilder regressions = new StringBuilder();
+    for (String key : measured.stringPropertyNames()) {
+      String baseline = baselines.getProperty(key);
+      if (baseline == null) {
+        fail("No baseline for " + key + ": run with -Dtimessquare.recordBaselines=<file>");
+      }
+      String value = measured.getProperty(key);
+      if (Integer.parseInt(value) > Integer.parseInt(baseline)) {
+        regressions.append(String.format("%n  %s: %s, baseline %s", key, value, baseline));
+      }
+    }
+    if (regressions.length() > 0) {
+      fail("Regressed past the baselines of " + BASELINES + ":" + regressions
+          + "\nIf that's expected, run with -Dtimessquare.recordBaselines=<file>");
+    }
+  }
+
+  /**
+   * Returns the baselines being recorded if a scenario already added to them, the ones of the
+   * {@link #BASELINES} resource otherwise.
+   */
+  private Properties loadBaselines() throws IOException {
+    Properties baselines = new Properties();
+    InputStream in = RECORD_FILE != null && new File(RECORD_FILE).exists()
+        ? new FileInputStream(RECORD_FILE) : getClass().getResourceAsStream(BASELINES);
+    if (in != null) {
+      try {
+        baselines.load(in);
+      } finally {
+        in.close();
+      }
+    }
+    return baselines;
+  }
+
+  /** Writes the baselines sorted, without the timestamp of {@link Properties#store}. */
+  private static void storeBaselines(Properties baselines) throws IOException {
+    List<String> keys = new ArrayList<String>(baselines.stringPropertyNames());
+    Collections.sort(keys);
+    Writer out = new FileWriter(RECORD_FILE);
+    try {
+      out.write("# Recorded by CalendarPickerViewPerformanceTest.\n");
+      for (String key : keys) {
+        out.write(key + "=" + baselines.getProperty(key) + "\n");
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  private static final class Counts {
+    int getViews;
+    int inflations;
+    int binds;
+    int drawableStateRefreshes;
+
+    void reset() {
+      getViews = 0;
+      inflations = 0;
+      binds = 0;
+      drawableStateRefreshes = 0;
+    }
+  }
+
+  /** Inflated in place of the cells of month views. */
+  private static final class CountingCellView extends CalendarCellView {
+    CountingCellView(Context context, AttributeSet attrs) {
+      super(context, attrs);
+    }
+
+    @Override public void refreshDrawableState() {
+      counts.drawableStateRefreshes++;
+      super.refreshDrawableState();
+    }
+  }
+
+  private static final class CountingAdapter implements ListAdapter {
+    private final ListAdapter adapter;
+
+    CountingAdapter(ListAdapter adapter) {
+      this.adapter = adapter;
+    }
+
+    @Override public View getView(int position, View convertView, ViewGroup parent) {
+      counts.getViews++;
+      return adapter.getView(position, convertView, parent);
+    }
+
+    @Override public boolean areAllItemsEnabled() {
+      return adapter.areAllItemsEnabled();
+    }
+
+    @Override public boolean isEnabled(int position) {
+      return adapter.isEnabled(position);
+    }
+
+    @Override public void registerDataSetObserver(DataSetObserver observer) {
+      adapter.registerDataSetObserver(observer);
+    }
+
+    @Override public void unregisterDataSetObserver(DataSetObserver observer) {
+      adapter.unregisterDataSetObserver(observer);
+    }
+
+    @Override public int getCount() {
+      return adapter.getCount();
+    }
+
+    @Override public Object getItem(int position) {
+      return adapter.getItem(position);
+    }
+
+    @Override public long getItemId(int position) {
+      return adapter.getItemId(position);
+    }
+
+    @Override public boolean hasStableIds() {
+      return adapter.hasStableIds();
+    }
+
+    @Override public int getItemViewType(int position) {
+      return adapter.getItemViewType(position);
+    }
+
+    @Override public int getViewTypeCount() {
+      return adapter.getViewTypeCount();
+    }
+
+    @Override public boolean isEmpty() {
+      return adapter.isEmpty();
+    }
+  }
+}
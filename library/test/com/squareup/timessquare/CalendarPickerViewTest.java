@@ -2,19 +2,32 @@
 package com.squareup.timessquare;
 
 import android.app.Activity;
+import android.content.ClipData;
+import android.content.ClipDescription;
+import android.database.DataSetObserver;
+import android.view.DragEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.View.MeasureSpec;
 import android.widget.TextView;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.intellij.lang.annotations.MagicConstant;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.util.Scheduler;
 
 import static com.squareup.timessquare.CalendarPickerView.SelectionMode.MULTIPLE;
 import static com.squareup.timessquare.CalendarPickerView.SelectionMode.RANGE;
@@ -385,14 +398,14 @@ public class CalendarPickerViewTest {
     Calendar jumpToCal = buildCal(2013, FEBRUARY, 1);
     boolean wasAbleToSetDate = view.selectDate(jumpToCal.getTime());
     assertThat(wasAbleToSetDate).isTrue();
-    assertThat(view.selectedCells.get(0).isSelectable()).isTrue();
+    assertThat(view.model.selectedCells.get(0).isSelectable()).isTrue();
   }
 
   @Test
   public void testMultiselectWithNoInitialSelections() throws Exception {
     view.init(minDate, maxDate, locale) //
         .inMode(MULTIPLE);
-    assertThat(view.selectionMode).isEqualTo(MULTIPLE);
+    assertThat(view.model.getSelectionMode()).isEqualTo(MULTIPLE);
     assertThat(view.getSelectedDates()).isEmpty();
 
     view.selectDate(minDate);
@@ -429,6 +442,172 @@ public class CalendarPickerViewTest {
     assertThat(wasAbleToSetDate).isTrue();
   }
 
+  @Test
+  public void testBulkFilterIsMemoizedUntilInvalidated() throws Exception {
+    final List<Integer> dayCounts = new ArrayList<Integer>();
+    final boolean[] evenDaysOnly = { true };
+    view.setDateSelectableFilter(new CalendarPickerView.BulkDateSelectableFilter() {
+      @Override public void getSelectableDates(Date firstDate, int dayCount, BitSet selectable) {
+        dayCounts.add(dayCount);
+        Calendar cal = Calendar.getInstance(locale);
+        cal.setTime(firstDate);
+        for (int i = 0; i < dayCount; i++, cal.add(DATE, 1)) {
+          if (!evenDaysOnly[0] || cal.get(DAY_OF_MONTH) % 2 == 0) {
+            selectable.set(i);
+          }
+        }
+      }
+
+      @Override public boolean isDateSelectable(Date date) {
+        throw new AssertionError("The bulk method should be used.");
+      }
+    });
+    view.init(minDate, maxDate, locale) //
+        .inMode(SINGLE);
+
+    assertThat(view.selectDate(buildCal(2012, DECEMBER, 3).getTime())).isFalse();
+    assertThat(view.selectDate(buildCal(2012, DECEMBER, 4).getTime())).isTrue();
+    assertThat(view.selectDate(buildCal(2012, DECEMBER, 6).getTime())).isTrue();
+    // Only December was filtered, in a single call.
+    assertThat(dayCounts).containsExactly(31);
+
+    evenDaysOnly[0] = false;
+    assertThat(view.selectDate(buildCal(2012, DECEMBER, 5).getTime())).isFalse();
+    view.invalidateDateSelectableFilter();
+    assertThat(view.selectDate(buildCal(2012, DECEMBER, 5).getTime())).isTrue();
+  }
+
+  @Test
+  public void testBatchEditUpdatesOnceAndScrollsOnce() throws Exception {
+    CalendarPickerView.FluentInitializer initializer = view.init(minDate, maxDate, locale);
+    initializer.inMode(MULTIPLE);
+    Robolectric.runUiThreadTasks();
+    final int[] changes = new int[1];
+    view.getAdapter().registerDataSetObserver(new DataSetObserver() {
+      @Override public void onChanged() {
+        changes[0]++;
+      }
+    });
+    Scheduler scheduler = Robolectric.getUiThreadScheduler();
+    scheduler.pause();
+
+    view.beginBatchEdit();
+    view.beginBatchEdit();
+    view.selectDate(buildCal(2012, DECEMBER, 3).getTime());
+    view.selectDate(buildCal(2013, FEBRUARY, 4).getTime());
+    view.highlightDates(Arrays.asList(buildCal(2013, MARCH, 5).getTime()));
+    initializer.inMode(MULTIPLE);
+    view.endBatchEdit();
+    assertThat(changes[0]).isZero();
+    view.selectDate(buildCal(2013, APRIL, 6).getTime());
+    view.endBatchEdit();
+
+    assertThat(changes[0]).isEqualTo(1);
+    assertThat(scheduler.enqueuedTaskCount()).isEqualTo(1);
+    assertThat(view.getSelectedDates()).hasSize(3);
+    assertThat(getCells(MARCH, 2013).get(1).get(2).isHighlighted()).isTrue();
+  }
+
+  @Test
+  public void testInfiniteModeCreatesMonthsOnDemand() throws Exception {
+    final List<Date> filtered = new ArrayList<Date>();
+    view.setDateSelectableFilter(new CalendarPickerView.DateSelectableFilter() {
+      @Override public boolean isDateSelectable(Date date) {
+        filtered.add(date);
+        return true;
+      }
+    });
+    view.initInfinite(locale) //
+        .inMode(MULTIPLE) //
+        .withSelectedDate(buildCal(2012, NOVEMBER, 16).getTime());
+    assertThat(view.months).isEmpty();
+    assertThat(filtered).hasSize(30);
+
+    // Positions map to months arithmetically, from January 1600 to December 9999.
+    int count = view.getMonthCount();
+    assertThat(count).isEqualTo((10000 - 1600) * 12);
+    assertMonth(view.getMonth(0), JANUARY, 1600);
+    assertMonth((MonthDescriptor) view.getAdapter().getItem((2012 - 1600) * 12 + NOVEMBER),
+        NOVEMBER, 2012);
+    assertMonth(view.getMonth(count - 1), DECEMBER, 9999);
+
+    // Selecting far away only builds the months it touches.
+    assertThat(view.selectDate(buildCal(9000, JUNE, 1).getTime())).isTrue();
+    assertThat(view.selectDate(buildCal(1700, FEBRUARY, 28).getTime())).isTrue();
+    assertThat(filtered).hasSize(30 + 30 + 28);
+    assertThat(view.getSelectedDates()).hasSize(3);
+    List<List<MonthCellDescriptor>> cells = view.getMonthCells((9000 - 1600) * 12 + JUNE);
+    assertThat(cells.get(0).get(0).getValue()).isEqualTo(1);
+    assertThat(cells.get(0).get(0).isSelected()).isTrue();
+  }
+
+  private static void assertMonth(MonthDescriptor month, int expectedMonth, int expectedYear) {
+    assertThat(month.getMonth()).isEqualTo(expectedMonth);
+    assertThat(month.getYear()).isEqualTo(expectedYear);
+  }
+
+  @Test
+  public void testFormatsAreSharedPerLocaleAndFirstDayOfWeek() throws Exception {
+    CalendarFormats formats = CalendarFormats.get(activity, Locale.US, Calendar.SUNDAY);
+    assertThat(CalendarFormats.get(activity, Locale.US, Calendar.SUNDAY)).isSameAs(formats);
+    assertThat(formats.getWeekdayNames()) //
+        .containsExactly("Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat");
+    assertThat(formats.monthLabel(CalendarDays.of(2012, NOVEMBER, 30))).isEqualTo("November 2012");
+    assertThat(formats.fullDate(CalendarDays.of(2013, JANUARY, 1))).isEqualTo("Jan 1, 2013");
+
+    CalendarFormats mondays = CalendarFormats.get(activity, Locale.US, Calendar.MONDAY);
+    assertThat(mondays).isNotSameAs(formats);
+    assertThat(mondays.getWeekdayNames()[0]).isEqualTo("Mon");
+    assertThat(mondays.getWeekdayNames()[6]).isEqualTo("Sun");
+    assertThat(CalendarFormats.get(activity, Locale.FRANCE, Calendar.MONDAY) //
+        .monthLabel(CalendarDays.of(2012, NOVEMBER, 1))).isEqualTo("novembre 2012");
+  }
+
+  @Test
+  public void testAsyncInitFiltersOtherMonthsInBackground() throws Exception {
+    final Thread uiThread = Thread.currentThread();
+    final AtomicBoolean filteredInBackground = new AtomicBoolean();
+    view.setAsyncInit(true);
+    view.setDateSelectableFilter(new CalendarPickerView.DateSelectableFilter() {
+      @Override public boolean isDateSelectable(Date date) {
+        if (Thread.currentThread() != uiThread) {
+          filteredInBackground.set(true);
+        }
+        Calendar cal = Calendar.getInstance(locale);
+        cal.setTime(date);
+        int dayOfWeek = cal.get(DAY_OF_WEEK);
+        return dayOfWeek > 1 && dayOfWeek < 7;
+      }
+    });
+    view.init(minDate, maxDate, locale) //
+        .inMode(SINGLE) //
+        .withSelectedDate(buildCal(2013, MARCH, 5).getTime());
+    Robolectric.runUiThreadTasks();
+
+    // The selected month is built first, on the UI thread.
+    assertThat(view.isMonthFiltered(4)).isTrue();
+    for (int i = 0; i < 500 && !allMonthsFiltered(); i++) {
+      Thread.sleep(10);
+    }
+    Robolectric.runUiThreadTasks();
+    assertThat(allMonthsFiltered()).isTrue();
+    assertThat(filteredInBackground.get()).isTrue();
+
+    // Saturday the 8th is filtered out, Monday the 10th is not.
+    List<List<MonthCellDescriptor>> cells = getCells(JUNE, 2013);
+    assertCell(cells, 1, 6, 8, true, false, false, false, NONE);
+    assertCell(cells, 2, 1, 10, true, false, false, true, NONE);
+  }
+
+  private boolean allMonthsFiltered() {
+    for (int i = 0; i < view.months.size(); i++) {
+      if (!view.isMonthFiltered(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @Test
   public void testWithoutDateSelectedListener() throws Exception {
     view.init(minDate, maxDate, locale) //
@@ -439,19 +618,19 @@ public class CalendarPickerViewTest {
     jumpToCal.setTime(today.getTime());
     jumpToCal.add(DATE, 1);
     MonthCellDescriptor cellToClick =
-        new MonthCellDescriptor(jumpToCal.getTime(), true, true, true, true, true, 0,
-            MonthCellDescriptor.RangeState.NONE);
+        new MonthCellDescriptor(CalendarDays.fromCalendar(jumpToCal), jumpToCal.getTimeZone(), true,
+            true, true, true, true, 0, MonthCellDescriptor.RangeState.NONE);
     view.listener.handleClick(cellToClick);
 
-    assertThat(view.selectedCals.get(0).get(DATE)).isEqualTo(jumpToCal.get(DATE));
+    assertThat(view.model.selectedDays.first()).isEqualTo(CalendarDays.fromCalendar(jumpToCal));
   }
 
   @Test
   public void testRangeSelectionWithNoInitialSelection() throws Exception {
     view.init(minDate, maxDate, locale)
         .inMode(RANGE);
-    assertThat(view.selectedCals).hasSize(0);
-    assertThat(view.selectedCells).hasSize(0);
+    assertThat(view.model.selectedDays.size()).isEqualTo(0);
+    assertThat(view.model.selectedCells).hasSize(0);
 
     Calendar nov18 = buildCal(2012, NOVEMBER, 18);
     view.selectDate(nov18.getTime());
@@ -469,8 +648,8 @@ public class CalendarPickerViewTest {
     view.init(minDate, maxDate, locale)
         .inMode(SINGLE);
 
-    assertThat(view.highlightedCals).hasSize(0);
-    assertThat(view.highlightedCells).hasSize(0);
+    assertThat(view.model.highlightedDays.size()).isEqualTo(0);
+    assertThat(view.model.highlightedCells).hasSize(0);
   }
 
   @Test
@@ -481,13 +660,57 @@ public class CalendarPickerViewTest {
         .inMode(SINGLE)
         .withHighlightedDate(highlightedCal.getTime());
 
-    assertThat(view.highlightedCals).hasSize(1);
-    assertThat(view.highlightedCells).hasSize(1);
+    assertThat(view.model.highlightedDays.size()).isEqualTo(1);
+    assertThat(view.model.highlightedCells).hasSize(1);
 
     List<List<MonthCellDescriptor>> cells = getCells(NOVEMBER, 2012);
     assertThat(cells.get(3).get(2).isHighlighted()).isTrue();
   }
 
+  @Test
+  public void testCellViewBindsDescriptorState() {
+    view.init(minDate, maxDate, locale)
+        .inMode(SINGLE)
+        .withHighlightedDate(buildCal(2012, NOVEMBER, 17).getTime());
+
+    MonthView monthView = (MonthView) view.getAdapter().getView(0, null, null);
+    CalendarCellView highlighted =
+        (CalendarCellView) ((CalendarRowView) monthView.grid.getChildAt(4)).getChildAt(6);
+    assertThat(highlighted).hasTextString("17");
+    assertThat(highlighted.getDrawableState()).contains(R.attr.state_highlighted,
+        R.attr.state_current_month, R.attr.state_selectable);
+
+    highlighted.setHighlighted(false);
+    assertThat(highlighted.getDrawableState()).doesNotContain(R.attr.state_highlighted);
+  }
+
+  @Test
+  public void testCellViewShowsDragStates() throws Exception {
+    view.init(minDate, maxDate, locale);
+    MonthView monthView = (MonthView) view.getAdapter().getView(0, null, null);
+    CalendarRowView week = (CalendarRowView) monthView.grid.getChildAt(4);
+    CalendarCellView cell = (CalendarCellView) week.getChildAt(6);
+    cell.setOnDragListener(new View.OnDragListener() {
+      @Override public boolean onDrag(View v, DragEvent event) {
+        return true;
+      }
+    });
+    assertThat(cell.getDrawableState()).doesNotContain(android.R.attr.state_drag_can_accept);
+
+    // The parent adds the drag states once the cell accepts the drag, and clears them at its end.
+    week.dispatchDragEvent(obtainDragEvent(DragEvent.ACTION_DRAG_STARTED));
+    assertThat(cell.getDrawableState()).contains(android.R.attr.state_drag_can_accept);
+    week.dispatchDragEvent(obtainDragEvent(DragEvent.ACTION_DRAG_ENDED));
+    assertThat(cell.getDrawableState()).doesNotContain(android.R.attr.state_drag_can_accept);
+  }
+
+  /** Drag events can only be obtained through a hidden method. */
+  private static DragEvent obtainDragEvent(int action) throws Exception {
+    Method obtain = DragEvent.class.getMethod("obtain", int.class, float.class, float.class,
+        Object.class, ClipDescription.class, ClipData.class, boolean.class);
+    return (DragEvent) obtain.invoke(null, action, 0f, 0f, null, null, null, false);
+  }
+
   private void assertRangeSelectionBehavior() {
     // Start a new range in the middle of the current (Nov 18 - Nov 24) one.
     Calendar nov20 = buildCal(2012, NOVEMBER, 20);
@@ -539,14 +762,33 @@ public class CalendarPickerViewTest {
   }
 
   private void assertRangeSelected() {
-    assertThat(view.selectedCals).hasSize(2);
-    assertThat(view.selectedCells).hasSize(7);
+    assertThat(view.model.selectedDays.size()).isEqualTo(2);
+    assertThat(view.model.selectedCells).hasSize(2);
     assertThat(view.getSelectedDates()).hasSize(7);
   }
 
+  @Test
+  public void testLongRangeOnlyStoresItsEnds() throws Exception {
+    view.init(minDate, maxDate, locale) //
+        .inMode(RANGE);
+    view.selectDate(buildCal(2012, NOVEMBER, 20).getTime());
+    view.selectDate(buildCal(2013, MARCH, 10).getTime());
+
+    assertThat(view.model.selectedDays.size()).isEqualTo(2);
+    assertThat(view.model.selectedCells).hasSize(2);
+    // 11 days of November, 31 + 31 + 28 days and 10 days of March.
+    List<Date> selectedDates = view.getSelectedDates();
+    assertThat(selectedDates).hasSize(111);
+    assertThat(selectedDates.get(0)).isEqualTo(buildCal(2012, NOVEMBER, 20).getTime());
+    assertThat(selectedDates.get(110)).isEqualTo(buildCal(2013, MARCH, 10).getTime());
+
+    List<List<MonthCellDescriptor>> cells = getCells(JANUARY, 2013);
+    assertCell(cells, 2, 3, 16, true, false, false, true, MIDDLE);
+  }
+
   private void assertOneDateSelected() {
-    assertThat(view.selectedCals).hasSize(1);
-    assertThat(view.selectedCells).hasSize(1);
+    assertThat(view.model.selectedDays.size()).isEqualTo(1);
+    assertThat(view.model.selectedCells).hasSize(1);
     assertThat(view.getSelectedDates()).hasSize(1);
   }
 
@@ -606,6 +848,233 @@ public class CalendarPickerViewTest {
     assertCell(cells, 5, 0, 30, true, false, false, true, NONE);
   }
 
+  @Test
+  public void testGetCellFindsEveryDayOfTheGrid() throws Exception {
+    List<List<MonthCellDescriptor>> cells = getCells(NOVEMBER, 2012);
+    for (List<MonthCellDescriptor> week : cells) {
+      for (MonthCellDescriptor cell : week) {
+        assertThat(CalendarModel.getCell(cells, cell.getDay())).isSameAs(cell);
+      }
+    }
+    int firstDay = cells.get(0).get(0).getDay();
+    assertThat(CalendarModel.getCell(cells, firstDay - 1)).isNull();
+    assertThat(CalendarModel.getCell(cells, firstDay + cells.size() * 7)).isNull();
+  }
+
+  @Test
+  public void testMonthViewPoolSharesViewsBetweenPickers() throws Exception {
+    MonthViewPool pool = new MonthViewPool();
+    view.setMonthViewPool(pool);
+    view.measure(MeasureSpec.makeMeasureSpec(480, MeasureSpec.EXACTLY),
+        MeasureSpec.makeMeasureSpec(800, MeasureSpec.EXACTLY));
+    view.layout(0, 0, 480, 800);
+    assertThat(view.getChildCount()).isGreaterThan(0);
+    List<View> inlineViews = new ArrayList<View>();
+    for (int i = 0; i < view.getChildCount(); i++) {
+      inlineViews.add(view.getChildAt(i));
+    }
+
+    view.onDetachedFromWindow();
+    assertThat(view.getChildCount()).isZero();
+
+    CalendarPickerView dialogPicker = new CalendarPickerView(activity, null);
+    dialogPicker.setMonthViewPool(pool);
+    dialogPicker.init(minDate, maxDate, locale);
+    View monthView = dialogPicker.getAdapter().getView(0, null, dialogPicker);
+    assertThat(inlineViews).contains(monthView);
+    assertThat(((MonthView) monthView).title).hasText("November 2012");
+
+    // Pooled views are only shared with pickers that show the same headers.
+    CalendarPickerView frenchPicker = new CalendarPickerView(activity, null);
+    frenchPicker.setMonthViewPool(pool);
+    frenchPicker.init(minDate, maxDate, Locale.FRANCE);
+    View frenchView = frenchPicker.getAdapter().getView(0, null, frenchPicker);
+    assertThat(inlineViews).doesNotContain(frenchView);
+  }
+
+  @Test
+  public void testDialogPickerTakesTheSpareViewsOfAnAttachedPicker() throws Exception {
+    MonthViewPool pool = new MonthViewPool();
+    view.setMonthViewPool(pool);
+    view.setPrewarmMonthViews(6);
+    Robolectric.shadowOf(view).callOnAttachedToWindow();
+    while (view.prewarmNext()) {
+      // Run the idle steps.
+    }
+    view.measure(MeasureSpec.makeMeasureSpec(480, MeasureSpec.EXACTLY),
+        MeasureSpec.makeMeasureSpec(800, MeasureSpec.EXACTLY));
+    view.layout(0, 0, 480, 800);
+    int spareViews = 6 - view.getChildCount();
+
+    // The inline picker stays attached while a dialog picker is shown over it.
+    final int[] inflations = { 0 };
+    CalendarMetrics.attach(new CalendarMetrics() {
+      @Override public void onEvent(Event event, long durationNanos, int count) {
+        if (event == Event.INFLATE) {
+          inflations[0]++;
+        }
+      }
+    });
+    try {
+      CalendarPickerView dialogPicker = new CalendarPickerView(activity, null);
+      dialogPicker.setMonthViewPool(pool);
+      dialogPicker.init(minDate, maxDate, locale);
+      Robolectric.shadowOf(dialogPicker).callOnAttachedToWindow();
+      dialogPicker.measure(MeasureSpec.makeMeasureSpec(480, MeasureSpec.EXACTLY),
+          MeasureSpec.makeMeasureSpec(800, MeasureSpec.EXACTLY));
+      dialogPicker.layout(0, 0, 480, 800);
+
+      assertThat(dialogPicker.getChildCount()).isGreaterThan(0).isLessThanOrEqualTo(spareViews);
+      assertThat(inflations[0]).isZero();
+      assertThat(((MonthView) dialogPicker.getChildAt(0)).title).hasText("November 2012");
+    } finally {
+      CalendarMetrics.detach();
+    }
+  }
+
+  @Test
+  public void testPrewarmBindsMonthsAroundTheInitialOne() throws Exception {
+    view.setPrewarmMonthViews(3);
+    view.init(minDate, maxDate, locale) //
+        .withSelectedDate(buildCal(2013, MARCH, 5).getTime());
+    while (view.prewarmNext()) {
+      // Run the idle steps.
+    }
+    assertThat(view.prewarmNext()).isFalse();
+
+    // March is shown first, then April and February are the nearest.
+    for (int position : new int[] { 4, 5, 3 }) {
+      MonthView monthView = (MonthView) view.getAdapter().getView(position, null, view);
+      assertThat(monthView.title).hasText(view.getMonth(position).getLabel());
+    }
+  }
+
+  @Test
+  public void testPrewarmStopsOnInput() throws Exception {
+    view.setPrewarmMonthViews(3);
+    view.init(minDate, maxDate, locale);
+    assertThat(view.prewarmNext()).isTrue();
+
+    view.dispatchTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 10, 10, 0));
+    assertThat(view.prewarmNext()).isFalse();
+  }
+
+  @Test
+  public void testRebindingAMeasuredMonthDoesNotRequestLayout() throws Exception {
+    MonthView monthView = (MonthView) view.getAdapter().getView(0, null, view);
+    monthView.measure(MeasureSpec.makeMeasureSpec(700, MeasureSpec.EXACTLY),
+        MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+    monthView.layout(0, 0, 700, monthView.getMeasuredHeight());
+    CalendarRowView weekRow = (CalendarRowView) monthView.grid.getChildAt(2);
+    assertThat(weekRow.getMeasuredHeight()).isEqualTo(100);
+    assertThat(weekRow.getChildAt(0).getMeasuredHeight()).isEqualTo(100);
+
+    // January has five weeks too, with other labels and states in the same cells.
+    monthView.init(view.getMonth(2), view.getMonthCells(2), false);
+    assertThat(monthView.isLayoutRequested()).isFalse();
+  }
+
+  @Test
+  public void testAttachedMetricsReceiveEvents() throws Exception {
+    final Map<CalendarMetrics.Event, Integer> firstCounts =
+        new EnumMap<CalendarMetrics.Event, Integer>(CalendarMetrics.Event.class);
+    CalendarMetrics.attach(new CalendarMetrics() {
+      @Override public void onEvent(Event event, long durationNanos, int count) {
+        assertThat(durationNanos).isGreaterThanOrEqualTo(0);
+        if (!firstCounts.containsKey(event)) {
+          firstCounts.put(event, count);
+        }
+      }
+    });
+    try {
+      view.setDateSelectableFilter(new CalendarPickerView.DateSelectableFilter() {
+        @Override public boolean isDateSelectable(Date date) {
+          return true;
+        }
+      });
+      view.init(minDate, maxDate, locale);
+      measureFirstMonth();
+    } finally {
+      CalendarMetrics.detach();
+    }
+    // November 2012 through November 2013.
+    assertThat(firstCounts.get(CalendarMetrics.Event.INIT)).isEqualTo(13);
+    assertThat(firstCounts.get(CalendarMetrics.Event.INFLATE)).isEqualTo(1);
+    // November 2012 has five weeks, and only its days from the 16th are filtered.
+    assertThat(firstCounts.get(CalendarMetrics.Event.MONTH_BUILD)).isEqualTo(35);
+    assertThat(firstCounts.get(CalendarMetrics.Event.BIND)).isEqualTo(35);
+    assertThat(firstCounts.get(CalendarMetrics.Event.FILTER)).isEqualTo(15);
+    // The five weeks and the two header rows above them.
+    assertThat(firstCounts.get(CalendarMetrics.Event.MEASURE)).isEqualTo(7);
+    assertThat(firstCounts).containsKey(CalendarMetrics.Event.LAYOUT);
+
+    firstCounts.clear();
+    view.init(minDate, maxDate, locale);
+    measureFirstMonth();
+    assertThat(firstCounts).isEmpty();
+  }
+
+  private void measureFirstMonth() {
+    MonthView monthView = (MonthView) view.getAdapter().getView(0, null, view);
+    monthView.measure(MeasureSpec.makeMeasureSpec(700, MeasureSpec.EXACTLY),
+        MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+    monthView.layout(0, 0, 700, monthView.getMeasuredHeight());
+  }
+
+  @Test
+  public void testFlatMonthViewHitTestsCells() throws Exception {
+    view.setFlatMonthViews(true);
+    FlatMonthView monthView = (FlatMonthView) view.getAdapter().getView(0, null, null);
+    monthView.measure(MeasureSpec.makeMeasureSpec(700, MeasureSpec.EXACTLY),
+        MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+    int height = monthView.getMeasuredHeight();
+    monthView.layout(0, 0, 700, height);
+
+    // November 2012 has five rows: the last one starts on the 25th.
+    MonthCellDescriptor cell = monthView.getCellAt(50, height - 50);
+    assertThat(cell.getValue()).isEqualTo(25);
+    assertThat(monthView.getCellAt(650, height - 50).getValue()).isEqualTo(1);
+    assertThat(monthView.getCellAt(50, height - 5 * 100 - 1)).isNull();
+
+    long now = System.currentTimeMillis();
+    monthView.dispatchTouchEvent(
+        MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN, 50, height - 50, 0));
+    monthView.dispatchTouchEvent(
+        MotionEvent.obtain(now, now, MotionEvent.ACTION_UP, 50, height - 50, 0));
+    assertThat(view.getSelectedDate()).isEqualTo(buildCal(2012, NOVEMBER, 25).getTime());
+  }
+
+  @Test
+  public void testFlatMonthViewIgnoresTapsOnAdjacentMonths() throws Exception {
+    view.setFlatMonthViews(true);
+    FlatMonthView monthView = (FlatMonthView) view.getAdapter().getView(0, null, null);
+    monthView.measure(MeasureSpec.makeMeasureSpec(700, MeasureSpec.EXACTLY),
+        MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+    int height = monthView.getMeasuredHeight();
+    monthView.layout(0, 0, 700, height);
+    final List<Date> selected = new ArrayList<Date>();
+    view.setOnDateSelectedListener(new CalendarPickerView.OnDateSelectedListener() {
+      @Override public void onDateSelected(Date date) {
+        selected.add(date);
+      }
+
+      @Override public void onDateUnselected(Date date) {
+      }
+    });
+
+    // The last row of November 2012 ends with December 1st.
+    MonthCellDescriptor cell = monthView.getCellAt(650, height - 50);
+    assertThat(cell.isCurrentMonth()).isFalse();
+    Date selectedDate = view.getSelectedDate();
+    long now = System.currentTimeMillis();
+    assertThat(monthView.dispatchTouchEvent(
+        MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN, 650, height - 50, 0))).isFalse();
+    monthView.dispatchTouchEvent(
+        MotionEvent.obtain(now, now, MotionEvent.ACTION_UP, 650, height - 50, 0));
+    assertThat(selected).isEmpty();
+    assertThat(view.getSelectedDate()).isEqualTo(selectedDate);
+  }
+
   private static void assertCell(List<List<MonthCellDescriptor>> cells, int row, int col,
       int expectedVal, boolean expectedCurrentMonth, boolean expectedSelected,
       boolean expectedToday, boolean expectedSelectable,
@@ -630,7 +1099,7 @@ public class CalendarPickerViewTest {
     cal.set(DAY_OF_MONTH, 1);
     cal.set(YEAR, year);
     cal.set(MONTH, month);
-    return view.getMonthCells(new MonthDescriptor(month, year, cal.getTime(), "January 2012"), cal);
+    return view.getMonthCells(new MonthDescriptor(month, year, cal.getTime(), "January 2012"));
   }
 
   private Calendar buildCal(int year, @MagicConstant(intValues = {
@@ -639,7 +1108,7 @@ public class CalendarPickerViewTest {
   }) int month, int day) {
     Calendar jumpToCal = Calendar.getInstance(locale);
     jumpToCal.set(year, month, day);
-    CalendarPickerView.setMidnight(jumpToCal);
+    CalendarDays.setMidnight(jumpToCal);
     return jumpToCal;
   }
 }
@@ -0,0 +1,190 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import java.util.Calendar;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static java.util.Calendar.DAY_OF_MONTH;
+import static java.util.Calendar.DAY_OF_WEEK;
+import static org.fest.assertions.api.ANDROID.assertThat;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class CollapseCalendarViewTest {
+  private CollapseCalendarView view;
+
+  @Before
+  public void setUp() throws Exception {
+    Activity activity = Robolectric.buildActivity(Activity.class).create().start().resume().get();
+    view = new CollapseCalendarView(activity, null);
+  }
+
+  @Test
+  public void testShowsEveryWeekOfTheMonth() throws Exception {
+    Calendar firstOfMonth = Calendar.getInstance();
+    firstOfMonth.set(DAY_OF_MONTH, 1);
+    int offset = (firstOfMonth.get(DAY_OF_WEEK) - firstOfMonth.getFirstDayOfWeek() + 7) % 7;
+    int days = firstOfMonth.getActualMaximum(DAY_OF_MONTH);
+    assertThat(visibleWeeks()).isEqualTo((offset + days + 6) / 7);
+  }
+
+  @Test
+  public void testOnlyTheDaysAfterTodayAreSelectable() throws Exception {
+    int today = CalendarDays.fromCalendar(Calendar.getInstance());
+    assertThat(view.mModel.isDateSelectable(today)).isFalse();
+    assertThat(view.mModel.isDateSelectable(today + 1)).isTrue();
+    assertThat(CalendarModel.getCell(view.mCells, today).isSelectable()).isFalse();
+  }
+
+  @Test
+  public void testCollapsedShowsTheSelectedWeek() throws Exception {
+    // The week of the 15th, and the next one, are entirely in its month.
+    Calendar selected = Calendar.getInstance();
+    selected.add(Calendar.MONTH, 1);
+    selected.set(DAY_OF_MONTH, 15);
+    view.setSelectedDate(selected);
+
+    view.setCollapsed(true);
+    assertThat(visibleWeeks()).isEqualTo(1);
+    int column = (selected.get(DAY_OF_WEEK) - selected.getFirstDayOfWeek() + 7) % 7;
+    CalendarCellView selectedCell = cellAt(column);
+    assertThat(selectedCell).hasText(Integer.toString(selected.get(DAY_OF_MONTH)));
+    assertThat(selectedCell.isSelected()).isTrue();
+
+    // The buttons move by a week.
+    Calendar nextWeek = (Calendar) selected.clone();
+    nextWeek.add(DAY_OF_MONTH, 7);
+    view.mMonthView.mNext.performClick();
+    assertThat(visibleWeeks()).isEqualTo(1);
+    assertThat(cellAt(column)).hasText(Integer.toString(nextWeek.get(DAY_OF_MONTH)));
+    assertThat(cellAt(column).isSelected()).isFalse();
+
+    view.setCollapsed(false);
+    assertThat(visibleWeeks()).isGreaterThan(3);
+  }
+
+  @Test
+  public void testCollapsedWeekDisablesTheDaysOfAnotherMonth() throws Exception {
+    // The week of the last day of next month runs into the month after it, unless it ends it.
+    Calendar lastDay = Calendar.getInstance();
+    lastDay.add(Calendar.MONTH, 1);
+    lastDay.set(DAY_OF_MONTH, lastDay.getActualMaximum(DAY_OF_MONTH));
+    lastDay.add(DAY_OF_MONTH, -3);
+    view.setSelectedDate(lastDay);
+    view.setCollapsed(true);
+
+    int lastColumn = (lastDay.get(DAY_OF_WEEK) - lastDay.getFirstDayOfWeek() + 7) % 7 + 3;
+    for (int column = 0; column < 7; column++) {
+      MonthCellDescriptor cell = (MonthCellDescriptor) cellAt(column).getTag();
+      assertThat(cell.isCurrentMonth()).isEqualTo(column <= lastColumn);
+      assertThat(cellAt(column).isEnabled()).isEqualTo(column <= lastColumn);
+      if (column > lastColumn) {
+        assertThat(cell.isSelectable()).isFalse();
+      }
+    }
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testOnlyWeekCollapsesTheCalendar() throws Exception {
+    view.mMonthView.setOnlyWeek(true);
+    assertThat(view.isCollapsed()).isTrue();
+    assertThat(view.mMonthView.getOnlyWeek()).isTrue();
+    assertThat(visibleWeeks()).isEqualTo(1);
+  }
+
+  @Test
+  public void testPagingShowsPrefetchedMonths() throws Exception {
+    Calendar today = Calendar.getInstance();
+    int thisMonth = CalendarDays.epochMonth(CalendarDays.fromCalendar(today));
+    waitForMonth(thisMonth + 1);
+    List<List<MonthCellDescriptor>> nextCells = view.mModel.getCachedMonthCells(thisMonth + 1);
+
+    view.mMonthView.mNext.performClick();
+    assertThat(view.mCells).isSameAs(nextCells);
+    view.mMonthView.mPrev.performClick();
+    assertThat(view.mCells).isSameAs(view.mModel.getCachedMonthCells(thisMonth));
+
+    // Cached months follow the selection made while they weren't shown.
+    Calendar nextMonth = (Calendar) today.clone();
+    nextMonth.set(DAY_OF_MONTH, 1);
+    nextMonth.add(Calendar.MONTH, 1);
+    view.setSelectedDate(nextMonth);
+    assertThat(view.mCells).isSameAs(nextCells);
+    MonthCellDescriptor selectedCell = CalendarModel.getCell(nextCells,
+        CalendarDays.fromCalendar(nextMonth));
+    assertThat(selectedCell.isSelected()).isTrue();
+    view.setSelectedDate(today);
+    view.mMonthView.mNext.performClick();
+    assertThat(view.mCells).isSameAs(nextCells);
+    assertThat(selectedCell.isSelected()).isFalse();
+  }
+
+  @Test
+  public void testSwipeShowsTheNeighbourBoundAheadOfTime() throws Exception {
+    int thisMonth = CalendarDays.epochMonth(CalendarDays.fromCalendar(Calendar.getInstance()));
+    waitForMonth(thisMonth + 1);
+    List<List<MonthCellDescriptor>> nextCells = view.mModel.getCachedMonthCells(thisMonth + 1);
+    view.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+    view.layout(0, 0, 480, view.getMeasuredHeight());
+
+    MonthPager pager = view.mPager;
+    MonthView shownPage = view.mMonthView;
+    MonthView nextPage = (MonthView) pager.getPage(1);
+    assertThat(nextPage.getTag()).isSameAs(nextCells);
+
+    // A swipe to the left that no page took.
+    long time = SystemClock.uptimeMillis();
+    pager.onTouchEvent(MotionEvent.obtain(time, time, MotionEvent.ACTION_DOWN, 400, 5, 0));
+    pager.onTouchEvent(MotionEvent.obtain(time, time + 50, MotionEvent.ACTION_MOVE, 350, 5, 0));
+    pager.onTouchEvent(MotionEvent.obtain(time, time + 100, MotionEvent.ACTION_MOVE, 100, 5, 0));
+    // Dragging only scrolls the pages.
+    assertThat(pager.getScrollX()).isEqualTo(480 + 300);
+    assertThat(view.mMonthView).isSameAs(shownPage);
+
+    pager.onTouchEvent(MotionEvent.obtain(time, time + 150, MotionEvent.ACTION_UP, 100, 5, 0));
+    for (int i = 0; i < 100 && view.mMonthView != nextPage; i++) {
+      Robolectric.getUiThreadScheduler().advanceBy(50);
+      pager.computeScroll();
+    }
+    assertThat(view.mMonthView).isSameAs(nextPage);
+    assertThat(view.mCells).isSameAs(nextCells);
+    assertThat(pager.getScrollX()).isEqualTo(480);
+    // The page left behind is now the previous one, and still shows this month.
+    assertThat(pager.getPage(-1)).isSameAs(shownPage);
+    assertThat(shownPage.getTag()).isSameAs(view.mModel.getCachedMonthCells(thisMonth));
+  }
+
+  private void waitForMonth(int epochMonth) throws InterruptedException {
+    for (int i = 0; i < 500 && view.mModel.getCachedMonthCells(epochMonth) == null; i++) {
+      Thread.sleep(10);
+      Robolectric.runUiThreadTasks();
+    }
+    assertThat(view.mModel.getCachedMonthCells(epochMonth)).isNotNull();
+  }
+
+  private int visibleWeeks() {
+    int weeks = 0;
+    for (int i = 2; i < view.mMonthView.grid.getChildCount(); i++) {
+      if (view.mMonthView.grid.getChildAt(i).getVisibility() == View.VISIBLE) {
+        weeks++;
+      }
+    }
+    return weeks;
+  }
+
+  private CalendarCellView cellAt(int column) {
+    CalendarRowView firstWeek = (CalendarRowView) view.mMonthView.grid.getChildAt(2);
+    return (CalendarCellView) firstWeek.getChildAt(column);
+  }
+}
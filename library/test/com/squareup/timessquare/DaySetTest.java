@@ -0,0 +1,46 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class DaySetTest {
+  @Test
+  public void testKeepsDaysSortedAndUnique() throws Exception {
+    DaySet days = new DaySet();
+    assertThat(days.isEmpty()).isTrue();
+    for (int day = 99; day >= 0; day -= 3) {
+      assertThat(days.add(day)).isTrue();
+    }
+    assertThat(days.add(42)).isFalse();
+    assertThat(days.add(-5)).isTrue();
+
+    assertThat(days.size()).isEqualTo(35);
+    assertThat(days.first()).isEqualTo(-5);
+    assertThat(days.last()).isEqualTo(99);
+    for (int i = 1; i < days.size(); i++) {
+      assertThat(days.get(i)).isGreaterThan(days.get(i - 1));
+    }
+    assertThat(days.contains(42)).isTrue();
+    assertThat(days.contains(43)).isFalse();
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    DaySet days = new DaySet();
+    days.add(3);
+    days.add(1);
+    days.add(2);
+
+    assertThat(days.remove(2)).isTrue();
+    assertThat(days.remove(2)).isFalse();
+    assertThat(days.contains(2)).isFalse();
+    assertThat(days.first()).isEqualTo(1);
+    assertThat(days.last()).isEqualTo(3);
+
+    days.clear();
+    assertThat(days.isEmpty()).isTrue();
+    assertThat(days.contains(1)).isFalse();
+  }
+}
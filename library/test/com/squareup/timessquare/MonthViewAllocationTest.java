@@ -0,0 +1,193 @@
+// Copyright 2014 Square, Inc.
+package com.squareup.timessquare;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.widget.ListAdapter;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static java.util.Calendar.AUGUST;
+import static java.util.Calendar.DAY_OF_MONTH;
+import static java.util.Calendar.FEBRUARY;
+import static java.util.Calendar.NOVEMBER;
+import static java.util.Calendar.YEAR;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Rebinds recycled month views the way a list does while it's flung, and checks that it doesn't
+ * allocate.  Robolectric's versions of {@link View#setEnabled}, {@link View#setVisibility} and
+ * {@link android.widget.TextView#setText} allocate, unlike the framework's: where a rebind has to
+ * call them, the tests check what the views keep or leave out what Robolectric allocates.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MonthViewAllocationTest {
+  private static final int MONTHS = 12;
+  private static final int WARM_UP_PASSES = 5;
+  private static final int REBINDS = 10;
+
+  private CalendarPickerView picker;
+  private ListAdapter adapter;
+
+  @Before
+  public void setUp() throws Exception {
+    Activity activity = Robolectric.buildActivity(Activity.class).create().start().resume().get();
+    picker = new CalendarPickerView(activity, null);
+    Calendar minDate = Calendar.getInstance(Locale.US);
+    minDate.clear();
+    minDate.set(2012, NOVEMBER, 1);
+    Calendar maxDate = (Calendar) minDate.clone();
+    maxDate.add(YEAR, 1);
+    picker.init(minDate.getTime(), maxDate.getTime(), Locale.US);
+    adapter = picker.getAdapter();
+    assertThat(adapter.getCount()).isEqualTo(MONTHS);
+  }
+
+  @Test
+  public void testRebindingToAnotherMonthAllocatesNothing() throws Exception {
+    // August 2013 and January 2015 start on the same day of the week and both follow a month of
+    // 31 days, so their cells show the same days: rebinding one to the other only has to change
+    // the title and the highlighted day, which Robolectric doesn't add to.
+    Calendar august = Calendar.getInstance(Locale.US);
+    august.clear();
+    august.set(2013, AUGUST, 1);
+    Calendar february = Calendar.getInstance(Locale.US);
+    february.clear();
+    february.set(2015, FEBRUARY, 1);
+    picker.init(august.getTime(), february.getTime(), Locale.US);
+    august.set(DAY_OF_MONTH, 15);
+    picker.highlightDates(Collections.singletonList(august.getTime()));
+    adapter = picker.getAdapter();
+    final int first = 0;
+    final int last = adapter.getCount() - 1;
+
+    final MonthView monthView = (MonthView) newMonthView();
+    for (int i = 0; i < WARM_UP_PASSES; i++) {
+      adapter.getView(first, monthView, picker);
+      adapter.getView(last, monthView, picker);
+    }
+    long allocated = Allocations.measure(new Runnable() {
+      @Override public void run() {
+        for (int i = 0; i < REBINDS; i++) {
+          adapter.getView(first, monthView, picker);
+          adapter.getView(last, monthView, picker);
+        }
+      }
+    });
+    // Setting a new title allocates its layout, even in the framework.
+    final CharSequence lastTitle = monthView.title.getText();
+    adapter.getView(first, monthView, picker);
+    final CharSequence firstTitle = monthView.title.getText();
+    assertThat(firstTitle).isNotEqualTo(lastTitle);
+    long titles = Allocations.measure(new Runnable() {
+      @Override public void run() {
+        for (int i = 0; i < REBINDS; i++) {
+          monthView.title.setText(firstTitle);
+          monthView.title.setText(lastTitle);
+        }
+      }
+    });
+    assertThat(allocated - titles).as("Bytes allocated rebinding the cells").isEqualTo(0);
+  }
+
+  @Test
+  public void testRebindingAcrossMonthsReusesDrawableStates() throws Exception {
+    View monthView = newMonthView();
+    for (int i = 0; i < WARM_UP_PASSES; i++) {
+      rebindAll(monthView);
+    }
+    // The cells flip between enabled and not, which Robolectric makes allocate: count the arrays
+    // that the drawable states are made of instead.
+    List<int[]> drawableStates = new ArrayList<int[]>();
+    for (int position = 0; position < MONTHS; position++) {
+      adapter.getView(position, monthView, picker);
+      for (CalendarCellView cell : cells((MonthView) monthView)) {
+        drawableStates.add(cell.getDrawableState());
+      }
+    }
+
+    int index = 0;
+    for (int position = 0; position < MONTHS; position++) {
+      adapter.getView(position, monthView, picker);
+      for (CalendarCellView cell : cells((MonthView) monthView)) {
+        assertThat(cell.getDrawableState()).isSameAs(drawableStates.get(index++));
+      }
+    }
+  }
+
+  @Test
+  public void testRebindingFlatMonthViewsAcrossMonthsAllocatesNothing() throws Exception {
+    picker.setFlatMonthViews(true);
+    final View monthView = newMonthView();
+    assertThat(monthView).isInstanceOf(FlatMonthView.class);
+    for (int i = 0; i < WARM_UP_PASSES; i++) {
+      rebindAll(monthView);
+    }
+    long allocated = Allocations.measure(new Runnable() {
+      @Override public void run() {
+        for (int i = 0; i < REBINDS; i++) {
+          rebindAll(monthView);
+        }
+      }
+    });
+    // Each rebind invalidates the view, and requests a layout when the number of weeks changes:
+    // both allocate under Robolectric.
+    final boolean[] weeksChange = new boolean[MONTHS];
+    for (int position = 0; position < MONTHS; position++) {
+      int previous = (position + MONTHS - 1) % MONTHS;
+      weeksChange[position] =
+          picker.getMonthCells(position).size() != picker.getMonthCells(previous).size();
+    }
+    long framework = Allocations.measure(new Runnable() {
+      @Override public void run() {
+        for (int i = 0; i < REBINDS; i++) {
+          for (int position = 0; position < MONTHS; position++) {
+            if (weeksChange[position]) {
+              monthView.requestLayout();
+            }
+            monthView.invalidate();
+          }
+        }
+      }
+    });
+    assertThat(allocated).isLessThanOrEqualTo(framework);
+  }
+
+  /** Returns a laid out month view, like the ones a list recycles. */
+  private View newMonthView() {
+    View monthView = adapter.getView(0, null, picker);
+    monthView.measure(MeasureSpec.makeMeasureSpec(480, MeasureSpec.EXACTLY),
+        MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+    monthView.layout(0, 0, 480, monthView.getMeasuredHeight());
+    return monthView;
+  }
+
+  private void rebindAll(View monthView) {
+    for (int position = 0; position < MONTHS; position++) {
+      adapter.getView(position, monthView, picker);
+    }
+  }
+
+  private static List<CalendarCellView> cells(MonthView monthView) {
+    List<CalendarCellView> cells = new ArrayList<CalendarCellView>();
+    for (int i = 2; i < monthView.grid.getChildCount(); i++) {
+      ViewGroup week = (ViewGroup) monthView.grid.getChildAt(i);
+      if (week.getVisibility() == View.VISIBLE) {
+        for (int c = 0; c < week.getChildCount(); c++) {
+          cells.add((CalendarCellView) week.getChildAt(c));
+        }
+      }
+    }
+    return cells;
+  }
+}